@@ -2,6 +2,7 @@ plugins {
     java
     id("org.springframework.boot") version "3.4.3"
     id("io.spring.dependency-management") version "1.1.7"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "org.base"
@@ -37,3 +38,86 @@ dependencies {
 tasks.withType<Test> {
     useJUnitPlatform()
 }
+
+// Benchmarks live in src/jmh/java, run them with ./gradlew jmh.
+jmh {
+    jmhVersion = "1.37"
+    // Reports allocation rates next to the timings.
+    profilers = listOf("gc")
+}
+
+// Fast-start launcher, see ScenarioLauncher. Class-data sharing only works with jars on the class path, so these
+// tasks run the plain jar rather than the compiled classes.
+// ./gradlew cdsArchive records the classes a small run loads, ./gradlew launch --args="--constraints.seed=42" starts
+// from the archive. On JDK 24 and later, -PlauncherJava=24 ./gradlew aotCache also caches the classes linked (JEP 483),
+// and launch with -PlauncherJava=24 prefers the cache over the archive. Older JDKs do not know the cache and skip it.
+val launcherMainClass = "org.base.scenario.ScenarioLauncher"
+val launcherJava = providers.gradleProperty("launcherJava").map(String::toInt).getOrElse(23)
+val launcherJvm = javaToolchains.launcherFor { languageVersion = JavaLanguageVersion.of(launcherJava) }
+val launcherClasspath = files(tasks.jar, configurations.runtimeClasspath)
+val cdsDirectory = layout.buildDirectory.dir("cds")
+val cdsArchive = cdsDirectory.map { it.file("launcher.jsa") }
+val aotConfiguration = cdsDirectory.map { it.file("launcher.aotconf") }
+val aotCache = cdsDirectory.map { it.file("launcher.aot") }
+// A small scenario that loads every class a typical run does.
+val trainingArgs = cdsDirectory.map { listOf("--constraints.output-name=${it.file("training").asFile}", "--constraints.scenario-count=2") }
+
+tasks.register<JavaExec>("cdsArchive") {
+    group = "application"
+    description = "Records the classes the launcher loads into a class-data-sharing archive."
+    classpath = launcherClasspath
+    mainClass = launcherMainClass
+    javaLauncher = launcherJvm
+    argumentProviders.add(CommandLineArgumentProvider { trainingArgs.get() })
+    jvmArgumentProviders.add(CommandLineArgumentProvider { listOf("-XX:ArchiveClassesAtExit=${cdsArchive.get().asFile}") })
+    outputs.file(cdsArchive)
+    doFirst { cdsDirectory.get().asFile.mkdirs() }
+}
+
+tasks.register<JavaExec>("aotConfiguration") {
+    group = "application"
+    description = "Records the classes the launcher loads and links, requires -PlauncherJava=24 or later."
+    classpath = launcherClasspath
+    mainClass = launcherMainClass
+    javaLauncher = launcherJvm
+    argumentProviders.add(CommandLineArgumentProvider { trainingArgs.get() })
+    jvmArgumentProviders.add(CommandLineArgumentProvider {
+        listOf("-XX:AOTMode=record", "-XX:AOTConfiguration=${aotConfiguration.get().asFile}")
+    })
+    outputs.file(aotConfiguration)
+    doFirst {
+        check(launcherJava >= 24) { "An AOT cache needs JDK 24 or later, run with -PlauncherJava=24" }
+        cdsDirectory.get().asFile.mkdirs()
+    }
+}
+
+tasks.register<JavaExec>("aotCache") {
+    group = "application"
+    description = "Creates an AOT cache for the launcher from the recorded configuration."
+    dependsOn("aotConfiguration")
+    classpath = launcherClasspath
+    mainClass = launcherMainClass
+    javaLauncher = launcherJvm
+    jvmArgumentProviders.add(CommandLineArgumentProvider {
+        listOf("-XX:AOTMode=create", "-XX:AOTConfiguration=${aotConfiguration.get().asFile}", "-XX:AOTCache=${aotCache.get().asFile}")
+    })
+    inputs.file(aotConfiguration)
+    outputs.file(aotCache)
+}
+
+tasks.register<JavaExec>("launch") {
+    group = "application"
+    description = "Generates scenarios with the launcher, from the AOT cache on JDK 24 or later or the CDS archive when one was created."
+    classpath = launcherClasspath
+    mainClass = launcherMainClass
+    javaLauncher = launcherJvm
+    jvmArgumentProviders.add(CommandLineArgumentProvider {
+        val cache = when {
+            launcherJava >= 24 && aotCache.get().asFile.exists() -> listOf("-XX:AOTCache=${aotCache.get().asFile}")
+            cdsArchive.get().asFile.exists() -> listOf("-XX:SharedArchiveFile=${cdsArchive.get().asFile}")
+            else -> listOf()
+        }
+        // Short runs finish before the optimizing compiler pays off.
+        cache + "-XX:TieredStopAtLevel=1"
+    })
+}
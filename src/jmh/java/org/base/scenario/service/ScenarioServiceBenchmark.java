@@ -0,0 +1,262 @@
+package org.base.scenario.service;
+
+import org.base.scenario.io.ScenarioFormat;
+import org.base.scenario.io.ScenarioWriter;
+import org.base.scenario.model.Constraints;
+import org.base.scenario.model.PickupRequests;
+import org.base.scenario.model.Scenario;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures each stage of {@link ScenarioService#createScenario(long)}, the whole pipeline with and without parallel
+ * stages, and the export of the finished scenario.
+ * <p>
+ * Every invocation starts from a fresh scenario that has run the stages before the measured one, the setup is not
+ * part of the measurement. Run with {@code ./gradlew jmh}, the GC profiler adds allocation rates per stage.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScenarioServiceBenchmark {
+    private static final long SEED = 42L;
+
+    enum Stage {
+        CHECKIN, DESTINATIONS, LEAVE, CHECKOUT, RETURN, NORMALIZE, EXPORT
+    }
+
+    @State(Scope.Thread)
+    public static class Pipeline {
+        @Param({"10", "100"})
+        public int floors;
+
+        @Param({"20", "200"})
+        public int roomsPerFloor;
+
+        // Length of the check-in window.
+        @Param({"14", "48"})
+        public int hours;
+
+        ScenarioService scenarioService;
+        ScenarioContext context;
+
+        @Setup(Level.Trial)
+        public void setUpService() {
+            scenarioService = new ScenarioService(constraints(floors, roomsPerFloor, hours));
+        }
+
+        /**
+         * Generates a fresh scenario up to, but excluding, the given stage, in the default stage order.
+         */
+        void runUntil(Stage stage) {
+            context = new ScenarioContext(scenarioService.getConstraints(), SEED);
+            if (stage == Stage.CHECKIN) {
+                return;
+            }
+            scenarioService.generateCheckinPickupRequests(context, context.nextRandom());
+            if (stage == Stage.DESTINATIONS) {
+                return;
+            }
+            scenarioService.assignCheckinDestinations(context, context.nextRandom());
+            if (stage == Stage.LEAVE) {
+                return;
+            }
+            scenarioService.addOccupantLeaveRequests(context, context.nextRandom());
+            if (stage == Stage.CHECKOUT) {
+                return;
+            }
+            scenarioService.generateCheckoutPickupRequests(context, context.nextRandom());
+            if (stage == Stage.RETURN) {
+                return;
+            }
+            scenarioService.addReturnRequests(context, context.nextRandom());
+            if (stage == Stage.NORMALIZE) {
+                return;
+            }
+            scenarioService.normalizePickupRequestsPerHour(context, context.nextRandom());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class BeforeCheckin extends Pipeline {
+        @Setup(Level.Invocation)
+        public void setUp() {
+            runUntil(Stage.CHECKIN);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class BeforeDestinations extends Pipeline {
+        @Setup(Level.Invocation)
+        public void setUp() {
+            runUntil(Stage.DESTINATIONS);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class BeforeLeave extends Pipeline {
+        @Setup(Level.Invocation)
+        public void setUp() {
+            runUntil(Stage.LEAVE);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class BeforeReturn extends Pipeline {
+        @Setup(Level.Invocation)
+        public void setUp() {
+            runUntil(Stage.RETURN);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class BeforeCheckout extends Pipeline {
+        @Setup(Level.Invocation)
+        public void setUp() {
+            runUntil(Stage.CHECKOUT);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class BeforeNormalize extends Pipeline {
+        @Setup(Level.Invocation)
+        public void setUp() {
+            runUntil(Stage.NORMALIZE);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Export extends Pipeline {
+        @Param({"TEXT", "BINARY"})
+        public ScenarioFormat format;
+
+        Scenario scenario;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            runUntil(Stage.EXPORT);
+            scenario = new Scenario(context.getPickupRequests());
+        }
+    }
+
+    /**
+     * Runs every stage except printing, sequentially or with independent stages in parallel.
+     */
+    @State(Scope.Thread)
+    public static class FullPipeline {
+        @Param({"10", "100"})
+        public int floors;
+
+        @Param({"20", "200"})
+        public int roomsPerFloor;
+
+        @Param({"14", "48"})
+        public int hours;
+
+        @Param({"false", "true"})
+        public boolean parallelStages;
+
+        @Param({"1", "8"})
+        public int buildingShards;
+
+        ScenarioService scenarioService;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            Constraints constraints = constraints(floors, roomsPerFloor, hours);
+            constraints.setStages(List.of("checkin", "destinations", "leave", "checkout", "return", "normalize"));
+            constraints.setParallelStages(parallelStages);
+            constraints.setBuildingShards(buildingShards);
+            scenarioService = new ScenarioService(constraints);
+        }
+    }
+
+    static Constraints constraints(int floors, int roomsPerFloor, int hours) {
+        Constraints constraints = new Constraints();
+        constraints.setNumberOfFloors(floors);
+        constraints.setNumberOfRoomsPerFloor(roomsPerFloor);
+        constraints.setMaxOccupantsPerRoom(4);
+        constraints.setCheckinStartTime(11);
+        constraints.setCheckinEndTime(11 + hours - 1);
+        constraints.setCheckoutStartTime(5);
+        constraints.setCheckoutEndTime(10);
+        constraints.setMetrics(false);
+        return constraints;
+    }
+
+    @Benchmark
+    public Scenario createScenario(FullPipeline state) {
+        return state.scenarioService.createScenario(SEED);
+    }
+
+    @Benchmark
+    public PickupRequests generateCheckinPickupRequests(BeforeCheckin state) {
+        state.scenarioService.generateCheckinPickupRequests(state.context, state.context.nextRandom());
+        return state.context.getPickupRequests();
+    }
+
+    @Benchmark
+    public PickupRequests assignCheckinDestinations(BeforeDestinations state) {
+        state.scenarioService.assignCheckinDestinations(state.context, state.context.nextRandom());
+        return state.context.getPickupRequests();
+    }
+
+    @Benchmark
+    public long addOccupantLeaveRequests(BeforeLeave state) {
+        state.scenarioService.addOccupantLeaveRequests(state.context, state.context.nextRandom());
+        return state.context.getReturns().size();
+    }
+
+    @Benchmark
+    public PickupRequests addReturnRequests(BeforeReturn state) {
+        state.scenarioService.addReturnRequests(state.context, state.context.nextRandom());
+        return state.context.getPickupRequests();
+    }
+
+    @Benchmark
+    public PickupRequests generateCheckoutPickupRequests(BeforeCheckout state) {
+        state.scenarioService.generateCheckoutPickupRequests(state.context, state.context.nextRandom());
+        return state.context.getPickupRequests();
+    }
+
+    @Benchmark
+    public PickupRequests normalizePickupRequestsPerHour(BeforeNormalize state) {
+        state.scenarioService.normalizePickupRequestsPerHour(state.context, state.context.nextRandom());
+        return state.context.getPickupRequests();
+    }
+
+    @Benchmark
+    public long generatePickupRequests(Export state) {
+        try (ScenarioWriter writer = ScenarioWriter.create(new DiscardingChannel(), state.format)) {
+            state.scenario.writePickupRequests(writer);
+            return writer.getRequestCount();
+        }
+    }
+
+    /**
+     * Measures formatting without the disk.
+     */
+    private static final class DiscardingChannel implements WritableByteChannel {
+        @Override
+        public int write(ByteBuffer src) {
+            int written = src.remaining();
+            src.position(src.limit());
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -1,7 +1,8 @@
 package org.base.scenario;
 
-import org.base.scenario.model.Scenario;
-import org.base.scenario.service.ScenarioService;
+import org.base.scenario.model.Constraints;
+import org.base.scenario.server.ScenarioServer;
+import org.base.scenario.service.ScenarioRunner;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -28,9 +29,13 @@ import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 @SpringBootApplication
 public class ScenarioApplication {
 
-    public ScenarioApplication(@Autowired ScenarioService scenarioService) {
-        Scenario scenario = scenarioService.createScenario();
-        scenario.generatePickupRequests();
+    public ScenarioApplication(@Autowired Constraints constraints, @Autowired ScenarioRunner scenarioRunner,
+                               @Autowired ScenarioServer scenarioServer) {
+        if (constraints.isServer()) {
+            scenarioServer.start();
+        } else {
+            scenarioRunner.run();
+        }
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,95 @@
+package org.base.scenario;
+
+import org.base.scenario.diagnostics.Diagnostics;
+import org.base.scenario.model.Constraints;
+import org.base.scenario.server.ScenarioServer;
+import org.base.scenario.service.ScenarioRunner;
+import org.base.scenario.service.ScenarioService;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Runs the generator without a Spring application context, for scripts that generate many small scenarios and would
+ * otherwise spend most of every run starting Spring Boot.
+ * <p>
+ * The {@code constraints.*} properties are read from the same places {@link ScenarioApplication} reads them from,
+ * later ones overriding earlier ones:
+ * <ol>
+ *     <li>{@code application.properties} on the class path,</li>
+ *     <li>system properties, {@code -Dconstraints.seed=42},</li>
+ *     <li>arguments, {@code --constraints.seed=42}.</li>
+ * </ol>
+ * Environment variables and profiles are not read. The beans are wired by hand, there is no component scan.
+ * <p>
+ * {@code ./gradlew cdsArchive} records the classes a run loads into a class-data-sharing archive, and
+ * {@code ./gradlew launch} starts the launcher from it.
+ */
+public final class ScenarioLauncher {
+    private static final String PREFIX = "constraints";
+
+    private ScenarioLauncher() {
+    }
+
+    public static void main(String[] args) {
+        Constraints constraints = bind(properties(args));
+        Diagnostics diagnostics = new Diagnostics(constraints);
+        if (constraints.isServer()) {
+            new ScenarioServer(constraints, diagnostics).start();
+            return;
+        }
+        try (diagnostics) {
+            new ScenarioRunner(constraints, new ScenarioService(constraints, diagnostics), diagnostics).run();
+        }
+    }
+
+    static Constraints bind(Map<String, String> properties) {
+        Constraints constraints = new Constraints();
+        new Binder(new MapConfigurationPropertySource(properties)).bind(PREFIX, Bindable.ofInstance(constraints));
+        return constraints;
+    }
+
+    /**
+     * @return the {@code constraints.*} properties, with overrides applied.
+     */
+    static Map<String, String> properties(String[] args) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        Properties defaults = new Properties();
+        try (InputStream in = ScenarioLauncher.class.getClassLoader().getResourceAsStream("application.properties")) {
+            if (in != null) {
+                defaults.load(in);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read application.properties", e);
+        }
+        putConstraints(properties, defaults);
+        putConstraints(properties, System.getProperties());
+
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --" + PREFIX + ".<name>=<value> but got " + arg);
+            }
+            String name = arg.substring(2, separator);
+            if (name.startsWith(PREFIX + ".")) {
+                properties.put(name, arg.substring(separator + 1));
+            }
+        }
+        return properties;
+    }
+
+    private static void putConstraints(Map<String, String> properties, Properties source) {
+        for (String name : source.stringPropertyNames()) {
+            if (name.startsWith(PREFIX + ".")) {
+                properties.put(name, source.getProperty(name).trim());
+            }
+        }
+    }
+}
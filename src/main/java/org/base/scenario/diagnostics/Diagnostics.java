@@ -0,0 +1,171 @@
+package org.base.scenario.diagnostics;
+
+import org.base.scenario.model.Constraints;
+import org.base.scenario.model.PickupRequests;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs what the generator produces, according to {@code constraints.diagnostics}.
+ * <p>
+ * Messages are handed to a bounded queue and printed by a single daemon thread, so logging never blocks the thread
+ * that generates a scenario. When the queue is full the message is dropped and counted, the count is reported on the
+ * next {@link #flush()}. Request dumps are queued as one message per time slice.
+ */
+@Component
+public class Diagnostics implements AutoCloseable {
+    private final DiagnosticsMode mode;
+    private final int sampleRate;
+    private final PrintStream out;
+    // Holds strings, or a CountDownLatch that is released once every message before it has been printed.
+    private final BlockingQueue<Object> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile Thread printer;
+
+    public Diagnostics(@Autowired Constraints constraints) {
+        this(constraints, System.out);
+    }
+
+    public Diagnostics(Constraints constraints, PrintStream out) {
+        this.mode = constraints.getDiagnostics();
+        this.sampleRate = Math.max(constraints.getDiagnosticsSampleRate(), 1);
+        this.out = out;
+        this.queue = new ArrayBlockingQueue<>(Math.max(constraints.getDiagnosticsQueueCapacity(), 1));
+    }
+
+    public DiagnosticsMode getMode() {
+        return mode;
+    }
+
+    public boolean isEnabled(DiagnosticsMode level) {
+        return level != DiagnosticsMode.OFF && mode.includes(level);
+    }
+
+    public void log(DiagnosticsMode level, String message) {
+        if (isEnabled(level)) {
+            enqueue(message);
+        }
+    }
+
+    /**
+     * Logs one summary line for a generated scenario.
+     */
+    public void logSummary(long seed, PickupRequests pickupRequests) {
+        logSummary(seed, pickupRequests.getRequestCount(), pickupRequests.getTimeSlices().length, pickupRequests.getMaxSliceSize());
+    }
+
+    public void logSummary(long seed, long requests, int timeSlices, int maxSliceSize) {
+        if (isEnabled(DiagnosticsMode.SUMMARY)) {
+            enqueue("Scenario " + seed + ": " + requests + " requests in " + timeSlices + " time slices, up to " +
+                    maxSliceSize + " per time slice");
+        }
+    }
+
+    /**
+     * Logs every request in {@link DiagnosticsMode#FULL} mode, or every n-th request in {@link DiagnosticsMode#SAMPLED}
+     * mode.
+     */
+    public void logPickupRequests(PickupRequests pickupRequests) {
+        if (!isEnabled(DiagnosticsMode.SAMPLED)) {
+            return;
+        }
+        int step = mode == DiagnosticsMode.FULL ? 1 : sampleRate;
+        long position = 0;
+        for (int timeSlice : pickupRequests.getTimeSlices()) {
+            int size = pickupRequests.size(timeSlice);
+            // First index of the time slice that falls on the sampling step.
+            int first = (int) ((step - position % step) % step);
+            position += size;
+            if (first >= size) {
+                continue;
+            }
+            StringBuilder sb = new StringBuilder("Time: ").append(timeSlice);
+            if (step > 1) {
+                sb.append(" (1 in ").append(step).append(" of ").append(size).append(" requests)");
+            }
+            for (int i = first; i < size; i += step) {
+                sb.append(System.lineSeparator())
+                        .append("  MoveRequest(currentFloor=").append(pickupRequests.getCurrentFloor(timeSlice, i))
+                        .append(", destinationFloor=").append(pickupRequests.getDestinationFloor(timeSlice, i))
+                        .append(")");
+            }
+            enqueue(sb.toString());
+        }
+    }
+
+    /**
+     * Waits until every message logged so far has been printed.
+     */
+    public void flush() {
+        if (printer == null) {
+            return;
+        }
+        CountDownLatch printed = new CountDownLatch(1);
+        try {
+            queue.put(printed);
+            printed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long count = dropped.getAndSet(0);
+        if (count > 0) {
+            out.println(count + " diagnostic messages were dropped, increase constraints.diagnostics-queue-capacity to keep them");
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    private void enqueue(String message) {
+        startPrinter();
+        if (!queue.offer(message)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private synchronized void startPrinter() {
+        if (printer != null) {
+            return;
+        }
+        printer = new Thread(this::print, "scenario-diagnostics");
+        printer.setDaemon(true);
+        printer.start();
+    }
+
+    private void print() {
+        List<Object> batch = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                for (Object message : batch) {
+                    if (message instanceof CountDownLatch printed) {
+                        out.print(sb);
+                        out.flush();
+                        sb.setLength(0);
+                        printed.countDown();
+                    } else {
+                        sb.append(message).append(System.lineSeparator());
+                    }
+                }
+                out.print(sb);
+                out.flush();
+                sb.setLength(0);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
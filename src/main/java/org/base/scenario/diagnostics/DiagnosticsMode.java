@@ -0,0 +1,27 @@
+package org.base.scenario.diagnostics;
+
+/**
+ * How much of a generated scenario is logged, each mode includes the ones before it.
+ */
+public enum DiagnosticsMode {
+    OFF,
+
+    /**
+     * One line per scenario with its request and time slice counts.
+     */
+    SUMMARY,
+
+    /**
+     * Every n-th request, see {@code constraints.diagnostics-sample-rate}.
+     */
+    SAMPLED,
+
+    /**
+     * Every request.
+     */
+    FULL;
+
+    public boolean includes(DiagnosticsMode mode) {
+        return compareTo(mode) >= 0;
+    }
+}
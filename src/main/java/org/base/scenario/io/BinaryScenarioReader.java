@@ -0,0 +1,112 @@
+package org.base.scenario.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads files produced by {@link BinaryScenarioWriter}.
+ */
+public class BinaryScenarioReader implements Closeable {
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final long recordCount;
+
+    public BinaryScenarioReader(ReadableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            buffer.flip();
+            if (!fill(BinaryScenarioWriter.HEADER_SIZE)) {
+                throw new IllegalArgumentException("Missing scenario header");
+            }
+            if (buffer.getInt() != BinaryScenarioWriter.MAGIC) {
+                throw new IllegalArgumentException("Not a binary scenario");
+            }
+            short version = buffer.getShort();
+            if (version != BinaryScenarioWriter.VERSION) {
+                throw new IllegalArgumentException("Unsupported scenario version " + version);
+            }
+            short recordSize = buffer.getShort();
+            if (recordSize != BinaryScenarioWriter.RECORD_SIZE) {
+                throw new IllegalArgumentException("Unsupported record size " + recordSize);
+            }
+            this.recordCount = buffer.getLong();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static BinaryScenarioReader open(Path path) {
+        try {
+            return new BinaryScenarioReader(FileChannel.open(path, StandardOpenOption.READ), ScenarioWriter.DEFAULT_BUFFER_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open " + path, e);
+        }
+    }
+
+    /**
+     * @return the number of records declared in the header, or -1 if the writer could not record it.
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Streams every remaining record to the consumer.
+     * @return the number of records read.
+     */
+    public long read(PickupRequestConsumer consumer) {
+        long read = 0;
+        try {
+            while (fill(BinaryScenarioWriter.RECORD_SIZE)) {
+                do {
+                    consumer.accept(buffer.getInt(), buffer.getInt(), buffer.getInt());
+                    read++;
+                } while (buffer.remaining() >= BinaryScenarioWriter.RECORD_SIZE);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (buffer.hasRemaining()) {
+            throw new IllegalStateException("Truncated record at the end of the scenario");
+        }
+        if (recordCount >= 0 && read != recordCount) {
+            throw new IllegalStateException("Expected " + recordCount + " records but read " + read);
+        }
+        return read;
+    }
+
+    /**
+     * Reads from the channel until at least {@code bytes} are buffered.
+     * @return false if the channel ended first.
+     */
+    private boolean fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer.remaining() >= bytes;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
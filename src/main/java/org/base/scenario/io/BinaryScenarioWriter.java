@@ -0,0 +1,66 @@
+package org.base.scenario.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes scenarios as fixed-width records.
+ * <p>
+ * Layout, all values little-endian:
+ * <pre>
+ * header  int   magic        "SCNR"
+ *         short version      1
+ *         short record size  12
+ *         long  record count -1 when the writer could not seek back to fill it in
+ * record  int   time slice
+ *         int   current floor
+ *         int   destination floor
+ * </pre>
+ */
+public class BinaryScenarioWriter extends ScenarioWriter {
+    public static final int MAGIC = 'S' | 'C' << 8 | 'N' << 16 | 'R' << 24;
+    public static final short VERSION = 1;
+    public static final short RECORD_SIZE = 3 * Integer.BYTES;
+    public static final int HEADER_SIZE = 16;
+    static final int RECORD_COUNT_OFFSET = 8;
+
+    public BinaryScenarioWriter(WritableByteChannel channel, int bufferSize) {
+        this(channel, bufferSize, true);
+    }
+
+    /**
+     * @param header false to write records only, for chunks that follow the first chunk of a file.
+     */
+    BinaryScenarioWriter(WritableByteChannel channel, int bufferSize, boolean header) {
+        super(channel, bufferSize);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (header) {
+            buffer.putInt(MAGIC)
+                    .putShort(VERSION)
+                    .putShort(RECORD_SIZE)
+                    .putLong(-1L);
+        }
+    }
+
+    @Override
+    protected void writeRequest(int timeSlice, int currentFloor, int destinationFloor) throws IOException {
+        ensureRemaining(RECORD_SIZE);
+        buffer.putInt(timeSlice)
+                .putInt(currentFloor)
+                .putInt(destinationFloor);
+    }
+
+    @Override
+    protected void finish() throws IOException {
+        if (channel instanceof FileChannel fileChannel) {
+            ByteBuffer count = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            count.putLong(getRequestCount()).flip();
+            while (count.hasRemaining()) {
+                fileChannel.write(count, RECORD_COUNT_OFFSET + count.position());
+            }
+        }
+    }
+}
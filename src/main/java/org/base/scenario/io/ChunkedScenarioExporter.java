@@ -0,0 +1,239 @@
+package org.base.scenario.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
+
+/**
+ * Exports a scenario in chunks of consecutive time slices that are formatted concurrently, one virtual thread per
+ * chunk. Formatting, not the disk, limits how fast a single writer exports a scenario.
+ * <p>
+ * Chunks are written either
+ * <ul>
+ *     <li>to numbered part files, {@code scenario.part-0001.txt} and so on, each a complete scenario of its format,
+ *     or</li>
+ *     <li>into a single file, each chunk at an offset worked out up front from the encoded size of the chunks before
+ *     it. The file is the same as a single writer produces. This needs a format with a predictable size, text or
+ *     binary.</li>
+ * </ul>
+ * Chunks hold about the same number of records. An {@link ExportManifest} lists where each chunk went.
+ */
+public class ChunkedScenarioExporter {
+    private final ScenarioFormat format;
+    private final int chunks;
+    private final boolean partFiles;
+
+    /**
+     * @param chunks    the number of chunks to split the time slices into, fewer when there are fewer time slices.
+     * @param partFiles whether to write every chunk to its own file instead of into one file.
+     */
+    public ChunkedScenarioExporter(ScenarioFormat format, int chunks, boolean partFiles) {
+        if (chunks < 1) {
+            throw new IllegalArgumentException("Chunks must be at least 1: " + chunks);
+        }
+        if (!partFiles && format == ScenarioFormat.COMPRESSED) {
+            throw new IllegalArgumentException("Compressed chunks have no predictable size, they can only be written to part files");
+        }
+        this.format = format;
+        this.chunks = chunks;
+        this.partFiles = partFiles;
+    }
+
+    /**
+     * Writes the scenario to {@code path}, or to part files next to it, and its manifest next to it.
+     */
+    public ExportManifest export(Path path, SliceSource source) {
+        List<int[]> ranges = split(source);
+        ExportManifest manifest = partFiles ? writeParts(path, source, ranges) : writeSingleFile(path, source, ranges);
+        manifest.write(ExportManifest.pathFor(path));
+        return manifest;
+    }
+
+    /**
+     * Splits the time slices into ranges of about the same number of records. A scenario without records is a single
+     * chunk, so the export still has one file with its header.
+     * @return the first and last time slice of every chunk.
+     */
+    List<int[]> split(SliceSource source) {
+        int[] timeSlices = source.getTimeSlices();
+        long total = 0;
+        for (int timeSlice : timeSlices) {
+            total += source.size(timeSlice);
+        }
+        if (total == 0) {
+            return List.of(timeSlices.length == 0
+                    ? new int[]{0, 0}
+                    : new int[]{timeSlices[0], timeSlices[timeSlices.length - 1]});
+        }
+        List<int[]> ranges = new ArrayList<>();
+        long records = 0;
+        int first = 0;
+        for (int i = 0; i < timeSlices.length; i++) {
+            records += source.size(timeSlices[i]);
+            // Ends the chunk once it reaches its share of the running total.
+            if (i == timeSlices.length - 1 || records * chunks >= total * (ranges.size() + 1)) {
+                ranges.add(new int[]{timeSlices[first], timeSlices[i]});
+                first = i + 1;
+            }
+        }
+        return ranges;
+    }
+
+    private ExportManifest writeParts(Path path, SliceSource source, List<int[]> ranges) {
+        String fileName = path.getFileName().toString();
+        String baseName = fileName.endsWith(format.getExtension())
+                ? fileName.substring(0, fileName.length() - format.getExtension().length())
+                : fileName;
+        List<ExportManifest.Chunk> chunks = runChunks(ranges.size(), chunk -> {
+            int[] range = ranges.get(chunk);
+            Path part = path.resolveSibling(String.format("%s.part-%04d%s", baseName, chunk + 1, format.getExtension()));
+            long records;
+            try (ScenarioWriter writer = ScenarioWriter.open(part, format)) {
+                source.forEach(range[0], range[1], writer::write);
+                records = writer.getRequestCount();
+            }
+            return new ExportManifest.Chunk(part.getFileName().toString(), range[0], range[1], records, 0, size(part));
+        });
+        return new ExportManifest(format, records(chunks), chunks);
+    }
+
+    private ExportManifest writeSingleFile(Path path, SliceSource source, List<int[]> ranges) {
+        // Every chunk's size decides where the next one starts, so the sizes are worked out first.
+        long[] sizes = runChunks(ranges.size(), chunk -> encodedSize(source, ranges.get(chunk), chunk == 0))
+                .stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+        long[] offsets = new long[sizes.length];
+        for (int chunk = 1; chunk < sizes.length; chunk++) {
+            offsets[chunk] = offsets[chunk - 1] + sizes[chunk - 1];
+        }
+
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            List<ExportManifest.Chunk> chunks = runChunks(ranges.size(), chunk -> {
+                int[] range = ranges.get(chunk);
+                PositionalChannel channel = new PositionalChannel(file, offsets[chunk]);
+                long records;
+                try (ScenarioWriter writer = format == ScenarioFormat.BINARY
+                        ? new BinaryScenarioWriter(channel, ScenarioWriter.DEFAULT_BUFFER_SIZE, chunk == 0)
+                        : ScenarioWriter.create(channel, format)) {
+                    source.forEach(range[0], range[1], writer::write);
+                    records = writer.getRequestCount();
+                }
+                if (channel.position - offsets[chunk] != sizes[chunk]) {
+                    throw new IllegalStateException("Chunk " + (chunk + 1) + " took " + (channel.position - offsets[chunk]) + " bytes, expected " + sizes[chunk]);
+                }
+                return new ExportManifest.Chunk(path.getFileName().toString(), range[0], range[1], records, offsets[chunk], sizes[chunk]);
+            });
+
+            long records = records(chunks);
+            if (format == ScenarioFormat.BINARY) {
+                // The first chunk's writer does not know the records of the others.
+                ByteBuffer count = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                count.putLong(records).flip();
+                while (count.hasRemaining()) {
+                    file.write(count, BinaryScenarioWriter.RECORD_COUNT_OFFSET + count.position());
+                }
+            }
+            return new ExportManifest(format, records, chunks);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write " + path, e);
+        }
+    }
+
+    private long encodedSize(SliceSource source, int[] range, boolean first) {
+        if (format == ScenarioFormat.BINARY) {
+            long records = 0;
+            for (int timeSlice = range[0]; timeSlice <= range[1]; timeSlice++) {
+                records += source.size(timeSlice);
+            }
+            return records * BinaryScenarioWriter.RECORD_SIZE + (first ? BinaryScenarioWriter.HEADER_SIZE : 0);
+        }
+        long[] size = new long[1];
+        source.forEach(range[0], range[1], (timeSlice, currentFloor, destinationFloor) ->
+                size[0] += TextScenarioWriter.recordSize(timeSlice, currentFloor, destinationFloor));
+        return size[0];
+    }
+
+    /**
+     * Runs every chunk on its own virtual thread.
+     * @return the result of every chunk, in chunk order.
+     */
+    private static <T> List<T> runChunks(int chunkCount, IntFunction<T> chunk) {
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            List<CompletableFuture<T>> futures = new ArrayList<>(chunkCount);
+            for (int i = 0; i < chunkCount; i++) {
+                int index = i;
+                futures.add(CompletableFuture.supplyAsync(() -> chunk.apply(index), executor));
+            }
+            List<T> results = new ArrayList<>(chunkCount);
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+            return results;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static long records(List<ExportManifest.Chunk> chunks) {
+        return chunks.stream().mapToLong(ExportManifest.Chunk::records).sum();
+    }
+
+    private static long size(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes to a shared file from a fixed offset on, without moving the file's own position. Closing it leaves the
+     * file open for the other chunks.
+     */
+    private static final class PositionalChannel implements WritableByteChannel {
+        private final FileChannel file;
+        private long position;
+
+        PositionalChannel(FileChannel file, long position) {
+            this.file = file;
+            this.position = position;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            int written = file.write(src, position);
+            position += written;
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return file.isOpen();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
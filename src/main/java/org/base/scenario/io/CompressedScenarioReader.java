@@ -0,0 +1,123 @@
+package org.base.scenario.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+
+import static org.base.scenario.io.CompressedScenarioWriter.*;
+
+/**
+ * Streams files produced by {@link CompressedScenarioWriter}, decoding entries straight from the inflated bytes.
+ */
+public class CompressedScenarioReader implements Closeable {
+    private final InputStream in;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+
+    public CompressedScenarioReader(ReadableByteChannel channel, int bufferSize) {
+        try {
+            this.in = new GZIPInputStream(Channels.newInputStream(channel), bufferSize);
+            this.buffer = new byte[bufferSize];
+            int magic = 0;
+            for (int i = 0; i < Integer.BYTES; i++) {
+                magic |= nextByte() << 8 * i;
+            }
+            if (magic != MAGIC) {
+                throw new IllegalArgumentException("Not a compressed scenario");
+            }
+            int version = nextByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported scenario version " + version);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static CompressedScenarioReader open(Path path) {
+        try {
+            return new CompressedScenarioReader(FileChannel.open(path, StandardOpenOption.READ), ScenarioWriter.DEFAULT_BUFFER_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open " + path, e);
+        }
+    }
+
+    /**
+     * Streams every record to the consumer, padding included.
+     * @return the number of records read.
+     */
+    public long read(PickupRequestConsumer consumer) {
+        long read = 0;
+        int timeSlice = 0;
+        int currentFloor = 0;
+        try {
+            while (true) {
+                long head = nextVarint();
+                long value = head >>> 2;
+                switch ((int) head & 3) {
+                    case TIME_SLICE -> timeSlice += (int) unzigzag(value);
+                    case REQUEST -> {
+                        currentFloor += (int) unzigzag(value);
+                        consumer.accept(timeSlice, currentFloor, currentFloor + (int) unzigzag(nextVarint()));
+                        read++;
+                    }
+                    case PADDING -> {
+                        for (long i = 0; i < value; i++) {
+                            consumer.accept(timeSlice, 0, 0);
+                        }
+                        read += value;
+                    }
+                    default -> {
+                        if (value != read) {
+                            throw new IllegalStateException("Expected " + value + " records but read " + read);
+                        }
+                        return read;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long nextVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = nextByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+
+    private int nextByte() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer);
+            position = 0;
+            if (limit < 0) {
+                limit = 0;
+                throw new IllegalStateException("Truncated scenario");
+            }
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public void close() {
+        try {
+            in.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
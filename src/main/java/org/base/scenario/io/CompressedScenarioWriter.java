@@ -0,0 +1,109 @@
+package org.base.scenario.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes scenarios as variable-length, delta-encoded entries in a gzip stream.
+ * <p>
+ * Layout inside the gzip stream:
+ * <pre>
+ * header  int    magic        "SCNZ", little-endian
+ *         byte   version      1
+ * entry   varint head         the low 2 bits are the kind of entry, the rest is its value
+ *   0     time slice          zigzag of the difference to the previous time slice, which starts at 0
+ *   1     request             zigzag of the difference between the current floor and the previous request's,
+ *         varint destination  followed by the zigzag of the destination floor minus the current floor
+ *   2     padding             the number of consecutive "0, 0" records
+ *   3     end                 the number of records in the stream
+ * </pre>
+ * Varints are unsigned LEB128, 7 bits per byte with the high bit set on every byte but the last. Padding is written
+ * as runs, so a padded time slice costs a byte per run instead of a record per padding request. Read the stream with
+ * {@link CompressedScenarioReader}.
+ */
+public class CompressedScenarioWriter extends ScenarioWriter {
+    public static final int MAGIC = 'S' | 'C' << 8 | 'N' << 16 | 'Z' << 24;
+    public static final byte VERSION = 1;
+    static final int TIME_SLICE = 0;
+    static final int REQUEST = 1;
+    static final int PADDING = 2;
+    static final int END = 3;
+    // A time slice entry, a padding run and a request of two varints of up to 10 bytes each.
+    private static final int MAX_ENTRY_SIZE = 4 * 10;
+
+    private int timeSlice;
+    private int currentFloor;
+    private long padding;
+
+    public CompressedScenarioWriter(WritableByteChannel channel, int bufferSize) {
+        super(compress(channel, bufferSize), bufferSize);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC)
+                .put(VERSION);
+    }
+
+    private static WritableByteChannel compress(WritableByteChannel channel, int bufferSize) {
+        try {
+            return Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(channel), bufferSize));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    protected void writeRequest(int timeSlice, int currentFloor, int destinationFloor) throws IOException {
+        ensureRemaining(MAX_ENTRY_SIZE);
+        if (timeSlice != this.timeSlice) {
+            endPadding();
+            putEntry(TIME_SLICE, zigzag((long) timeSlice - this.timeSlice));
+            this.timeSlice = timeSlice;
+        }
+        if (currentFloor == 0 && destinationFloor == 0) {
+            padding++;
+            return;
+        }
+        endPadding();
+        putEntry(REQUEST, zigzag((long) currentFloor - this.currentFloor));
+        putVarint(zigzag((long) destinationFloor - currentFloor));
+        this.currentFloor = currentFloor;
+    }
+
+    @Override
+    protected void finish() throws IOException {
+        ensureRemaining(MAX_ENTRY_SIZE);
+        endPadding();
+        putEntry(END, getRequestCount());
+        drain();
+    }
+
+    private void endPadding() {
+        if (padding > 0) {
+            putEntry(PADDING, padding);
+            padding = 0;
+        }
+    }
+
+    private void putEntry(int kind, long value) {
+        putVarint(value << 2 | kind);
+    }
+
+    private void putVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static long zigzag(long value) {
+        return value << 1 ^ value >> 63;
+    }
+
+    static long unzigzag(long value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+}
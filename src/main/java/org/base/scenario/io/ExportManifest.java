@@ -0,0 +1,59 @@
+package org.base.scenario.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Describes the chunks of a scenario written by {@link ChunkedScenarioExporter}, so consumers can read the chunks
+ * independently. It is written next to the scenario as {@code <scenario file>.manifest.json}.
+ *
+ * @param records the number of records in all chunks, padding included.
+ */
+public record ExportManifest(ScenarioFormat format, long records, List<Chunk> chunks) {
+    private static final String EXTENSION = ".manifest.json";
+
+    /**
+     * @param file   the name of the file that holds the chunk, relative to the manifest.
+     * @param offset the position of the chunk in the file, 0 for part files.
+     * @param bytes  the length of the chunk in the file.
+     */
+    public record Chunk(String file, int firstTimeSlice, int lastTimeSlice, long records, long offset, long bytes) {
+    }
+
+    public static Path pathFor(Path scenario) {
+        return scenario.resolveSibling(scenario.getFileName() + EXTENSION);
+    }
+
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"format\": \"").append(format.name().toLowerCase(Locale.ROOT)).append("\",\n");
+        sb.append("  \"records\": ").append(records).append(",\n");
+        sb.append("  \"chunks\": [");
+        for (int i = 0; i < chunks.size(); i++) {
+            Chunk chunk = chunks.get(i);
+            sb.append(i == 0 ? "\n" : ",\n")
+                    .append("    {\"file\": \"").append(chunk.file().replace("\\", "\\\\").replace("\"", "\\\""))
+                    .append("\", \"firstTimeSlice\": ").append(chunk.firstTimeSlice())
+                    .append(", \"lastTimeSlice\": ").append(chunk.lastTimeSlice())
+                    .append(", \"records\": ").append(chunk.records())
+                    .append(", \"offset\": ").append(chunk.offset())
+                    .append(", \"bytes\": ").append(chunk.bytes())
+                    .append('}');
+        }
+        sb.append(chunks.isEmpty() ? "]\n" : "\n  ]\n").append("}\n");
+        return sb.toString();
+    }
+
+    public void write(Path path) {
+        try {
+            Files.writeString(path, toJson(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write the manifest " + path, e);
+        }
+    }
+}
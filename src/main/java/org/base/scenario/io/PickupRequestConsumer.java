@@ -0,0 +1,16 @@
+package org.base.scenario.io;
+
+/**
+ * Receives pickup requests as primitives, so readers do not need to allocate a request object per record.
+ */
+@FunctionalInterface
+public interface PickupRequestConsumer {
+    void accept(int timeSlice, int currentFloor, int destinationFloor);
+
+    default PickupRequestConsumer andThen(PickupRequestConsumer after) {
+        return (timeSlice, currentFloor, destinationFloor) -> {
+            accept(timeSlice, currentFloor, destinationFloor);
+            after.accept(timeSlice, currentFloor, destinationFloor);
+        };
+    }
+}
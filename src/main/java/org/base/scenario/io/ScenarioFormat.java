@@ -0,0 +1,31 @@
+package org.base.scenario.io;
+
+/**
+ * Output formats supported by the scenario exporter.
+ */
+public enum ScenarioFormat {
+    /**
+     * One "timeSlice, currentFloor, destinationFloor" line per request.
+     */
+    TEXT(".txt"),
+
+    /**
+     * Fixed-width little-endian records behind a small header, see {@link BinaryScenarioWriter}.
+     */
+    BINARY(".bin"),
+
+    /**
+     * Delta-encoded entries with padding runs in a gzip stream, see {@link CompressedScenarioWriter}.
+     */
+    COMPRESSED(".scnz");
+
+    private final String extension;
+
+    ScenarioFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
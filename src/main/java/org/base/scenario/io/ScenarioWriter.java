@@ -0,0 +1,141 @@
+package org.base.scenario.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams pickup requests to a channel through a single large buffer.
+ * Requests are written one at a time, so an exporter never needs to hold a formatted copy of the scenario.
+ */
+public abstract class ScenarioWriter implements Closeable {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    protected final WritableByteChannel channel;
+    protected final ByteBuffer buffer;
+    private long requestCount;
+    // Bytes drained to the channel so far, the writer's position is this plus the buffered bytes.
+    private long drained;
+    private SliceIndex sliceIndex;
+    private Path sliceIndexPath;
+
+    protected ScenarioWriter(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Opens a writer for the given format, truncating any existing file.
+     */
+    public static ScenarioWriter open(Path path, ScenarioFormat format) {
+        return open(path, format, false);
+    }
+
+    /**
+     * @param sliceIndex whether to write a {@link SliceIndex} next to the file when the writer is closed, requests
+     *                   must then be written in time slice order.
+     */
+    public static ScenarioWriter open(Path path, ScenarioFormat format, boolean sliceIndex) {
+        if (sliceIndex && format == ScenarioFormat.COMPRESSED) {
+            throw new IllegalArgumentException("A slice index needs an uncompressed format, not " + format);
+        }
+        ScenarioWriter writer;
+        try {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            writer = create(channel, format);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open " + path, e);
+        }
+        if (sliceIndex) {
+            writer.sliceIndex = new SliceIndex(format);
+            writer.sliceIndexPath = SliceIndex.pathFor(path);
+        }
+        return writer;
+    }
+
+    /**
+     * Creates a writer on an already open channel, the writer takes ownership of the channel.
+     */
+    public static ScenarioWriter create(WritableByteChannel channel, ScenarioFormat format) {
+        return create(channel, format, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param bufferSize the number of bytes buffered before they are written to the channel.
+     */
+    public static ScenarioWriter create(WritableByteChannel channel, ScenarioFormat format, int bufferSize) {
+        return switch (format) {
+            case TEXT -> new TextScenarioWriter(channel, bufferSize);
+            case BINARY -> new BinaryScenarioWriter(channel, bufferSize);
+            case COMPRESSED -> new CompressedScenarioWriter(channel, bufferSize);
+        };
+    }
+
+    public final void write(int timeSlice, int currentFloor, int destinationFloor) {
+        if (sliceIndex != null) {
+            sliceIndex.record(timeSlice, position());
+        }
+        try {
+            writeRequest(timeSlice, currentFloor, destinationFloor);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        requestCount++;
+    }
+
+    public long getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * @return the number of bytes written so far, including the ones still buffered.
+     */
+    public long position() {
+        return drained + buffer.position();
+    }
+
+    protected abstract void writeRequest(int timeSlice, int currentFloor, int destinationFloor) throws IOException;
+
+    /**
+     * Makes room for at least {@code bytes} in the buffer, draining it to the channel when necessary.
+     */
+    protected final void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+    }
+
+    protected final void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            drained += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Called once after the last buffered bytes are drained and before the channel is closed.
+     */
+    protected void finish() throws IOException {
+    }
+
+    @Override
+    public void close() {
+        try (channel) {
+            drain();
+            finish();
+            if (sliceIndex != null) {
+                sliceIndex.end(position());
+                sliceIndex.write(sliceIndexPath);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package org.base.scenario.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Byte offsets of every time slice in a scenario file, written next to it as {@code <scenario file>.idx} so readers
+ * can jump to a time slice, see {@link SliceIndexedScenario}.
+ * <p>
+ * Layout, all values little-endian:
+ * <pre>
+ * header  int  magic          "SIDX"
+ *         int  version        1
+ *         int  slice count
+ *         int  format         ordinal of the {@link ScenarioFormat} of the scenario file
+ * slice   int  time slice
+ *         int  request count
+ *         long offset         of the first request of the time slice in the scenario file
+ *         long length         in bytes
+ * </pre>
+ */
+public class SliceIndex {
+    public static final int MAGIC = 'S' | 'I' << 8 | 'D' << 16 | 'X' << 24;
+    public static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int ENTRY_SIZE = 24;
+    private static final String EXTENSION = ".idx";
+
+    private final ScenarioFormat format;
+    private int[] timeSlices = new int[16];
+    private int[] requestCounts = new int[16];
+    private long[] offsets = new long[16];
+    private long[] lengths = new long[16];
+    private int sliceCount;
+
+    SliceIndex(ScenarioFormat format) {
+        this.format = format;
+    }
+
+    public static Path pathFor(Path scenario) {
+        return scenario.resolveSibling(scenario.getFileName() + EXTENSION);
+    }
+
+    public ScenarioFormat getFormat() {
+        return format;
+    }
+
+    public int getSliceCount() {
+        return sliceCount;
+    }
+
+    public int getTimeSlice(int slice) {
+        return timeSlices[checkSlice(slice)];
+    }
+
+    public int getRequestCount(int slice) {
+        return requestCounts[checkSlice(slice)];
+    }
+
+    public long getOffset(int slice) {
+        return offsets[checkSlice(slice)];
+    }
+
+    public long getLength(int slice) {
+        return lengths[checkSlice(slice)];
+    }
+
+    /**
+     * @return the position of the time slice in the index, or -1 if the scenario has no requests in it.
+     */
+    public int find(int timeSlice) {
+        int slice = Arrays.binarySearch(timeSlices, 0, sliceCount, timeSlice);
+        return slice < 0 ? -1 : slice;
+    }
+
+    /**
+     * Records a request written at {@code position}. Requests must be recorded in time slice order.
+     */
+    void record(int timeSlice, long position) {
+        if (sliceCount == 0 || timeSlices[sliceCount - 1] != timeSlice) {
+            if (sliceCount > 0 && timeSlice < timeSlices[sliceCount - 1]) {
+                throw new IllegalStateException("Time slice " + timeSlice + " is written after time slice " + timeSlices[sliceCount - 1]);
+            }
+            end(position);
+            if (sliceCount == timeSlices.length) {
+                grow(sliceCount * 2);
+            }
+            timeSlices[sliceCount] = timeSlice;
+            requestCounts[sliceCount] = 0;
+            offsets[sliceCount] = position;
+            sliceCount++;
+        }
+        requestCounts[sliceCount - 1]++;
+    }
+
+    /**
+     * Ends the last time slice at {@code position}.
+     */
+    void end(long position) {
+        if (sliceCount > 0) {
+            lengths[sliceCount - 1] = position - offsets[sliceCount - 1];
+        }
+    }
+
+    void write(Path path) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + sliceCount * ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(sliceCount)
+                .putInt(format.ordinal());
+        for (int i = 0; i < sliceCount; i++) {
+            buffer.putInt(timeSlices[i])
+                    .putInt(requestCounts[i])
+                    .putLong(offsets[i])
+                    .putLong(lengths[i]);
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write " + path, e);
+        }
+    }
+
+    public static SliceIndex read(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a slice index: " + path);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported slice index version " + version);
+            }
+            int sliceCount = buffer.getInt();
+            SliceIndex index = new SliceIndex(ScenarioFormat.values()[buffer.getInt()]);
+            if (buffer.remaining() != (long) sliceCount * ENTRY_SIZE) {
+                throw new IllegalArgumentException("Truncated slice index: " + path);
+            }
+            index.grow(sliceCount);
+            for (int i = 0; i < sliceCount; i++) {
+                index.timeSlices[i] = buffer.getInt();
+                index.requestCounts[i] = buffer.getInt();
+                index.offsets[i] = buffer.getLong();
+                index.lengths[i] = buffer.getLong();
+            }
+            index.sliceCount = sliceCount;
+            return index;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read " + path, e);
+        }
+    }
+
+    private void grow(int capacity) {
+        if (capacity > timeSlices.length) {
+            timeSlices = Arrays.copyOf(timeSlices, capacity);
+            requestCounts = Arrays.copyOf(requestCounts, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+    }
+
+    private int checkSlice(int slice) {
+        if (slice < 0 || slice >= sliceCount) {
+            throw new IndexOutOfBoundsException("Slice " + slice + " out of bounds for " + sliceCount + " slices");
+        }
+        return slice;
+    }
+}
@@ -0,0 +1,183 @@
+package org.base.scenario.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads single time slices of a scenario file written with a {@link SliceIndex}, without parsing the rest of the
+ * file.
+ * <p>
+ * Files up to 2 GiB are memory-mapped once, larger ones a time slice at a time, so a time slice is read straight from
+ * the page cache. Reads do not change any shared state, a scenario can be read from several threads at once.
+ */
+public class SliceIndexedScenario implements Closeable {
+    private final Path path;
+    private final FileChannel channel;
+    private final SliceIndex index;
+    // The whole file, or null when it is too large to map at once.
+    private final MappedByteBuffer file;
+
+    private SliceIndexedScenario(Path path, FileChannel channel, SliceIndex index) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.index = index;
+        long size = channel.size();
+        if (index.getSliceCount() > 0) {
+            int last = index.getSliceCount() - 1;
+            if (index.getOffset(last) + index.getLength(last) > size) {
+                throw new IllegalArgumentException("The slice index of " + path + " extends past the end of the file");
+            }
+        }
+        this.file = size <= Integer.MAX_VALUE ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size) : null;
+    }
+
+    /**
+     * Opens a scenario file and the slice index next to it, see {@link SliceIndex#pathFor(Path)}.
+     */
+    public static SliceIndexedScenario open(Path path) {
+        SliceIndex index = SliceIndex.read(SliceIndex.pathFor(path));
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open " + path, e);
+        }
+        try {
+            return new SliceIndexedScenario(path, channel, index);
+        } catch (IOException | RuntimeException e) {
+            try {
+                channel.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e instanceof IOException ioException ? new UncheckedIOException("Unable to map " + path, ioException) : (RuntimeException) e;
+        }
+    }
+
+    public ScenarioFormat getFormat() {
+        return index.getFormat();
+    }
+
+    /**
+     * @return the time slices that have requests, in ascending order.
+     */
+    public int[] getTimeSlices() {
+        int[] timeSlices = new int[index.getSliceCount()];
+        for (int i = 0; i < timeSlices.length; i++) {
+            timeSlices[i] = index.getTimeSlice(i);
+        }
+        return timeSlices;
+    }
+
+    /**
+     * @return the number of requests in the time slice, padding included, or 0 if it has none.
+     */
+    public int size(int timeSlice) {
+        int slice = index.find(timeSlice);
+        return slice < 0 ? 0 : index.getRequestCount(slice);
+    }
+
+    /**
+     * @return a read-only view of the encoded requests of the time slice, empty if it has none.
+     */
+    public ByteBuffer slice(int timeSlice) {
+        int slice = index.find(timeSlice);
+        if (slice < 0) {
+            return ByteBuffer.allocate(0).asReadOnlyBuffer();
+        }
+        long offset = index.getOffset(slice);
+        long length = index.getLength(slice);
+        if (file != null) {
+            return file.slice((int) offset, (int) length).asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Time slice " + timeSlice + " of " + path + " is too large to map");
+        }
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to map time slice " + timeSlice + " of " + path, e);
+        }
+    }
+
+    /**
+     * Streams the requests of the time slice to the consumer.
+     * @return the number of requests read.
+     */
+    public int read(int timeSlice, PickupRequestConsumer consumer) {
+        ByteBuffer requests = slice(timeSlice);
+        int read = switch (index.getFormat()) {
+            case TEXT -> readText(requests, consumer);
+            case BINARY -> readBinary(requests, consumer);
+            case COMPRESSED -> throw new IllegalStateException("Compressed scenarios have no slice index");
+        };
+        if (read != size(timeSlice)) {
+            throw new IllegalStateException("Expected " + size(timeSlice) + " requests in time slice " + timeSlice + " but read " + read);
+        }
+        return read;
+    }
+
+    private static int readBinary(ByteBuffer requests, PickupRequestConsumer consumer) {
+        if (requests.remaining() % BinaryScenarioWriter.RECORD_SIZE != 0) {
+            throw new IllegalStateException("Truncated record in the time slice");
+        }
+        int read = 0;
+        for (int pos = 0; pos < requests.limit(); pos += BinaryScenarioWriter.RECORD_SIZE) {
+            consumer.accept(requests.getInt(pos), requests.getInt(pos + Integer.BYTES), requests.getInt(pos + 2 * Integer.BYTES));
+            read++;
+        }
+        return read;
+    }
+
+    /**
+     * Parses "timeSlice, currentFloor, destinationFloor" lines in place, see {@link TextScenarioWriter}.
+     */
+    private static int readText(ByteBuffer requests, PickupRequestConsumer consumer) {
+        int[] values = new int[3];
+        int read = 0;
+        int pos = 0;
+        int limit = requests.limit();
+        while (pos < limit) {
+            for (int i = 0; i < values.length; i++) {
+                while (pos < limit && (requests.get(pos) == ' ' || requests.get(pos) == ',')) {
+                    pos++;
+                }
+                boolean negative = pos < limit && requests.get(pos) == '-';
+                if (negative) {
+                    pos++;
+                }
+                int start = pos;
+                long value = 0;
+                while (pos < limit && requests.get(pos) >= '0' && requests.get(pos) <= '9') {
+                    value = value * 10 + requests.get(pos++) - '0';
+                }
+                if (pos == start) {
+                    throw new IllegalStateException("Expected a number at byte " + pos + " of the time slice");
+                }
+                values[i] = (int) (negative ? -value : value);
+            }
+            while (pos < limit && (requests.get(pos) == '\r' || requests.get(pos) == '\n')) {
+                pos++;
+            }
+            consumer.accept(values[0], values[1], values[2]);
+            read++;
+        }
+        return read;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.base.scenario.io;
+
+/**
+ * Pickup requests that can be read a range of time slices at a time, see {@link ChunkedScenarioExporter}.
+ */
+public interface SliceSource {
+    /**
+     * @return the time slices with requests, in ascending order.
+     */
+    int[] getTimeSlices();
+
+    int size(int timeSlice);
+
+    /**
+     * Visits the requests of the time slices from {@code first} to {@code last}, inclusive, in time slice order.
+     */
+    void forEach(int first, int last, PickupRequestConsumer consumer);
+}
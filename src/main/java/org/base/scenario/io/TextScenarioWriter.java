@@ -0,0 +1,66 @@
+package org.base.scenario.io;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the "timeSlice, currentFloor, destinationFloor" text format.
+ * Integers are formatted straight into the output buffer instead of going through {@link String#format}.
+ */
+public class TextScenarioWriter extends ScenarioWriter {
+    private static final byte[] SEPARATOR = ", ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    // Three signed ints, two separators and the line separator.
+    private static final int MAX_RECORD_SIZE = 3 * 11 + 2 * SEPARATOR.length + LINE_SEPARATOR.length;
+
+    public TextScenarioWriter(WritableByteChannel channel, int bufferSize) {
+        super(channel, bufferSize);
+    }
+
+    @Override
+    protected void writeRequest(int timeSlice, int currentFloor, int destinationFloor) throws IOException {
+        ensureRemaining(MAX_RECORD_SIZE);
+        putInt(timeSlice);
+        buffer.put(SEPARATOR);
+        putInt(currentFloor);
+        buffer.put(SEPARATOR);
+        putInt(destinationFloor);
+        buffer.put(LINE_SEPARATOR);
+    }
+
+    /**
+     * @return the number of bytes the request takes, without writing it.
+     */
+    static int recordSize(int timeSlice, int currentFloor, int destinationFloor) {
+        return size(timeSlice) + size(currentFloor) + size(destinationFloor) + 2 * SEPARATOR.length + LINE_SEPARATOR.length;
+    }
+
+    private static int size(int value) {
+        return value < 0 ? 1 + digits(-(long) value) : digits(value);
+    }
+
+    private void putInt(int value) {
+        long v = value;
+        if (v < 0) {
+            buffer.put((byte) '-');
+            v = -v;
+        }
+        int end = buffer.position() + digits(v);
+        int pos = end;
+        do {
+            buffer.put(--pos, (byte) ('0' + v % 10));
+            v /= 10;
+        } while (v != 0);
+        buffer.position(end);
+    }
+
+    private static int digits(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+}
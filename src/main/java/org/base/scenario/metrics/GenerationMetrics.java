@@ -0,0 +1,190 @@
+package org.base.scenario.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records wall time, request counts and allocated bytes per pipeline stage of one scenario.
+ * <p>
+ * A stage costs two {@link System#nanoTime()} calls and two reads of the thread's allocation counter, which is cheap
+ * enough to leave on for every run. The allocation counter is the one of the thread that runs the stage, work the
+ * stage hands to other threads, like the shards of a sharded stage, is not counted.
+ * <p>
+ * Stages of the pipeline can run concurrently, so the total is the end-to-end time of the steps that run one after
+ * another, not the sum of the stages.
+ */
+public class GenerationMetrics {
+    private static final com.sun.management.ThreadMXBean THREADS = threadMXBean();
+    private static final GenerationMetrics DISABLED = new GenerationMetrics("disabled", 0L, false);
+    private static final StageTimer NO_OP = new StageTimer(DISABLED, "", 0L, 0L, 0L, false);
+
+    private final String scenario;
+    private final long seed;
+    private final boolean enabled;
+    private final List<StageMetrics> stages = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicLong wallNanos = new AtomicLong();
+
+    public GenerationMetrics(String scenario, long seed) {
+        this(scenario, seed, true);
+    }
+
+    private GenerationMetrics(String scenario, long seed, boolean enabled) {
+        this.scenario = scenario;
+        this.seed = seed;
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return metrics that record nothing.
+     */
+    public static GenerationMetrics disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getScenario() {
+        return scenario;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public List<StageMetrics> getStages() {
+        synchronized (stages) {
+            return List.copyOf(stages);
+        }
+    }
+
+    /**
+     * @return the end-to-end wall time of the scenario so far.
+     */
+    public long getWallNanos() {
+        return wallNanos.get();
+    }
+
+    /**
+     * Starts timing a step that runs on its own, its wall time counts towards the total. The step must be stopped on
+     * the same thread.
+     */
+    public StageTimer start(String stage, long requestsIn) {
+        return start(stage, requestsIn, true);
+    }
+
+    /**
+     * Starts timing a stage that may run alongside others. Its wall time does not count towards the total, the caller
+     * adds the end-to-end time of all of them with {@link #addWallNanos(long)}.
+     */
+    public StageTimer startConcurrent(String stage, long requestsIn) {
+        return start(stage, requestsIn, false);
+    }
+
+    private StageTimer start(String stage, long requestsIn, boolean total) {
+        if (!enabled) {
+            return NO_OP;
+        }
+        return new StageTimer(this, stage, requestsIn, allocatedBytes(), System.nanoTime(), total);
+    }
+
+    public void addWallNanos(long nanos) {
+        if (enabled) {
+            wallNanos.addAndGet(nanos);
+        }
+    }
+
+    public void record(StageMetrics stage) {
+        if (enabled) {
+            stages.add(stage);
+        }
+    }
+
+    /**
+     * Sums the stages of several scenarios by stage name, in the order the stages first appear. The total is the sum
+     * of the scenarios' totals.
+     */
+    public static GenerationMetrics aggregate(String name, List<GenerationMetrics> scenarios) {
+        Map<String, StageMetrics> totals = new LinkedHashMap<>();
+        for (GenerationMetrics metrics : scenarios) {
+            for (StageMetrics stage : metrics.getStages()) {
+                totals.merge(stage.name(), stage, StageMetrics::plus);
+            }
+        }
+        GenerationMetrics aggregate = new GenerationMetrics(name, 0L);
+        totals.values().forEach(aggregate::record);
+        scenarios.forEach(metrics -> aggregate.addWallNanos(metrics.getWallNanos()));
+        return aggregate;
+    }
+
+    public String toSummary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Metrics for ").append(scenario).append(System.lineSeparator());
+        sb.append(String.format("  %-24s %12s %14s %14s %16s%n", "Stage", "Wall ms", "Requests in", "Requests out", "Allocated KiB*"));
+        for (StageMetrics stage : getStages()) {
+            sb.append(String.format("  %-24s %12.3f %14d %14d %16s%n", stage.name(), stage.wallNanos() / 1e6,
+                    stage.requestsIn(), stage.requestsOut(),
+                    stage.allocatedBytes() < 0 ? "n/a" : String.format("%.1f", stage.allocatedBytes() / 1024.0)));
+        }
+        sb.append(String.format("  %-24s %12.3f%n", "Total", getWallNanos() / 1e6));
+        sb.append("  * on the thread that ran the stage, without work it hands to other threads").append(System.lineSeparator());
+        return sb.toString();
+    }
+
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"scenario\": \"").append(escape(scenario)).append("\",\n");
+        sb.append("  \"seed\": ").append(seed).append(",\n");
+        sb.append("  \"wallNanos\": ").append(getWallNanos()).append(",\n");
+        sb.append("  \"stages\": [");
+        List<StageMetrics> recorded = getStages();
+        for (int i = 0; i < recorded.size(); i++) {
+            StageMetrics stage = recorded.get(i);
+            sb.append(i == 0 ? "\n" : ",\n")
+                    .append("    {\"name\": \"").append(escape(stage.name()))
+                    .append("\", \"wallNanos\": ").append(stage.wallNanos())
+                    .append(", \"requestsIn\": ").append(stage.requestsIn())
+                    .append(", \"requestsOut\": ").append(stage.requestsOut())
+                    .append(", \"allocatedBytes\": ").append(stage.allocatedBytes())
+                    .append('}');
+        }
+        sb.append(recorded.isEmpty() ? "]\n" : "\n  ]\n").append("}\n");
+        return sb.toString();
+    }
+
+    public void writeJson(Path path) {
+        try {
+            Files.writeString(path, toJson(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write metrics to " + path, e);
+        }
+    }
+
+    static long allocatedBytes() {
+        return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads &&
+            threads.isThreadAllocatedMemorySupported()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+            return threads;
+        }
+        return null;
+    }
+}
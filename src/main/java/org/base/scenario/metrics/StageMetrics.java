@@ -0,0 +1,16 @@
+package org.base.scenario.metrics;
+
+/**
+ * What a single pipeline stage cost.
+ *
+ * @param allocatedBytes bytes allocated by the thread that ran the stage, not by threads it handed work
+ *                       to, or -1 if the JVM does not report it.
+ */
+public record StageMetrics(String name, long wallNanos, long requestsIn, long requestsOut, long allocatedBytes) {
+
+    StageMetrics plus(StageMetrics other) {
+        long allocated = allocatedBytes < 0 || other.allocatedBytes < 0 ? -1 : allocatedBytes + other.allocatedBytes;
+        return new StageMetrics(name, wallNanos + other.wallNanos, requestsIn + other.requestsIn,
+                requestsOut + other.requestsOut, allocated);
+    }
+}
@@ -0,0 +1,35 @@
+package org.base.scenario.metrics;
+
+/**
+ * A running stage, see {@link GenerationMetrics#start(String, long)}.
+ */
+public class StageTimer {
+    private final GenerationMetrics metrics;
+    private final String stage;
+    private final long requestsIn;
+    private final long startAllocatedBytes;
+    private final long startNanos;
+    // Whether the wall time counts towards the scenario's total.
+    private final boolean total;
+
+    StageTimer(GenerationMetrics metrics, String stage, long requestsIn, long startAllocatedBytes, long startNanos, boolean total) {
+        this.metrics = metrics;
+        this.stage = stage;
+        this.requestsIn = requestsIn;
+        this.startAllocatedBytes = startAllocatedBytes;
+        this.startNanos = startNanos;
+        this.total = total;
+    }
+
+    public void stop(long requestsOut) {
+        if (!metrics.isEnabled()) {
+            return;
+        }
+        long wallNanos = System.nanoTime() - startNanos;
+        long allocated = startAllocatedBytes < 0 ? -1 : GenerationMetrics.allocatedBytes() - startAllocatedBytes;
+        metrics.record(new StageMetrics(stage, wallNanos, requestsIn, requestsOut, allocated));
+        if (total) {
+            metrics.addWallNanos(wallNanos);
+        }
+    }
+}
@@ -1,63 +1,229 @@
 package org.base.scenario.model;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.random.RandomGenerator;
 
+/**
+ * The occupancy of a {@link BuildingLayout}, with an occupancy index over its rooms.
+ * <p>
+ * Rooms are indexed by {@code roomNumber - firstRoomNumber}. Free rooms are tracked in a bit set that is scanned from a
+ * cursor, and occupied rooms in a dense array that supports random sampling and removal in constant time. The layout
+ * is shared with every other building of the same shape, {@link #reset()} empties the building so it can be used for
+ * the next scenario instead of being built again.
+ * <p>
+ * A building can also be created for a range of floors, as a shard of the whole building. Its rooms keep the numbers
+ * they have in the whole building and are filled in the same order.
+ */
 @Getter
 public class Building {
-    private final Constraints constraints;
-    private final Map<Integer, Floor> floors = new TreeMap<>();
-    private int currentFloor = 2; // Starts from floor 2 to force the elevator to go up.
+    private static final int FIRST_CHECKIN_FLOOR = 2; // Starts from floor 2 to force the elevator to go up.
+
+    private final BuildingLayout layout;
+    private int currentFloor;
+
+    // Occupants of each room, 0 when the room is free.
+    @Getter(AccessLevel.NONE)
+    private final int[] occupants;
+    @Getter(AccessLevel.NONE)
+    private final BitSet freeRooms;
+    @Getter(AccessLevel.NONE)
+    private int nextFreeRoom;
+    @Getter(AccessLevel.NONE)
+    private final int[] occupiedRooms;
+    // Position of each room in occupiedRooms, or -1 if the room is free.
+    @Getter(AccessLevel.NONE)
+    private final int[] occupiedPositions;
+    private int occupiedRoomCount;
 
     public Building(Constraints constraints) {
-        this.constraints = constraints;
-        int currentRoomNumber = 1;
-        for (int i = 1; i <= constraints.getNumberOfFloors(); i++) {
-            Floor floor = new Floor(i);
-            for (int j = 1; j <= constraints.getNumberOfRoomsPerFloor(); j++) {
-                Room room = new Room(currentRoomNumber);
-                floor.addRoom(room);
-                currentRoomNumber++;
-            }
-            floors.put(i, floor);
+        this(BuildingLayout.of(constraints));
+    }
+
+    /**
+     * Creates the floors from {@code firstFloor} to {@code lastFloor} of the building.
+     */
+    public Building(Constraints constraints, int firstFloor, int lastFloor) {
+        this(BuildingLayout.of(constraints, firstFloor, lastFloor));
+    }
+
+    public Building(BuildingLayout layout) {
+        this.layout = layout;
+        int roomCount = layout.getRoomCount();
+        this.occupants = new int[roomCount];
+        this.freeRooms = new BitSet(roomCount);
+        this.occupiedRooms = new int[roomCount];
+        this.occupiedPositions = new int[roomCount];
+        Arrays.fill(occupiedPositions, -1);
+        reset();
+    }
+
+    private Building(Building other) {
+        this.layout = other.layout;
+        this.currentFloor = other.currentFloor;
+        this.occupants = other.occupants.clone();
+        this.freeRooms = (BitSet) other.freeRooms.clone();
+        this.nextFreeRoom = other.nextFreeRoom;
+        this.occupiedRooms = other.occupiedRooms.clone();
+        this.occupiedPositions = other.occupiedPositions.clone();
+        this.occupiedRoomCount = other.occupiedRoomCount;
+    }
+
+    /**
+     * @return an independent copy of the building and its occupancy, on the same layout.
+     */
+    public Building copy() {
+        return new Building(this);
+    }
+
+    /**
+     * Checks every occupied room out and moves the check-in cursor back to its start, which costs a pass over the
+     * occupied rooms instead of a new building.
+     */
+    public void reset() {
+        for (int i = 0; i < occupiedRoomCount; i++) {
+            occupants[occupiedRooms[i]] = 0;
+            occupiedPositions[occupiedRooms[i]] = -1;
         }
+        occupiedRoomCount = 0;
+        currentFloor = Math.max(FIRST_CHECKIN_FLOOR, layout.getFirstFloor());
+        nextFreeRoom = Math.min(layout.firstRoom(currentFloor), layout.getRoomCount());
+        freeRooms.clear();
+        freeRooms.set(nextFreeRoom, layout.getRoomCount());
+    }
+
+    public int getFirstFloor() {
+        return layout.getFirstFloor();
     }
 
+    public int getLastFloor() {
+        return layout.getLastFloor();
+    }
+
+    public Map<Integer, Floor> getFloors() {
+        return layout.getFloors();
+    }
+
+    /**
+     * @return the floor of the next free room, or null if the building is full.
+     */
     public Floor getNextFloorWithRoom() {
-        for (int i = currentFloor; i <= constraints.getNumberOfFloors(); i++) {
-            Floor floor = floors.get(i);
-            if (floor.getAvailableRoom() != null) {
-                return floor;
-            }
-            currentFloor++;
+        int room = nextFreeRoom();
+        if (room < 0) {
+            return null;
         }
-        return null;
+        currentFloor = layout.getFloorNumber(room);
+        return layout.getFloors().get(currentFloor);
     }
 
+    public boolean hasFreeRoom() {
+        return nextFreeRoom() >= 0;
+    }
+
+    public int getFreeRoomCount() {
+        return freeRooms.cardinality();
+    }
+
+    /**
+     * Checks the occupants into the next free room.
+     * @return the checked in room, or null if the building is full.
+     */
+    public Room checkIn(int occupants) {
+        int room = nextFreeRoom();
+        if (room < 0) {
+            return null;
+        }
+        occupy(room, occupants);
+        currentFloor = layout.getFloorNumber(room);
+        return layout.getRoom(room);
+    }
+
+    /**
+     * Checks the occupants into the next free room of the floor, if the floor has one.
+     */
     public void checkInOccupants(Floor floor, int occupants) {
-        floor.checkInOccupants(occupants);
+        if (floor.getFloorNumber() < getFirstFloor() || floor.getFloorNumber() > getLastFloor()) {
+            return;
+        }
+        int room = freeRooms.nextSetBit(layout.firstRoom(floor.getFloorNumber()));
+        if (room >= 0 && layout.getFloorNumber(room) == floor.getFloorNumber()) {
+            occupy(room, occupants);
+        }
+    }
+
+    public int getFloorNumber(Room room) {
+        return layout.getFloorNumber(layout.indexOf(room));
+    }
+
+    /**
+     * @return the occupants of the room, 0 if it is free.
+     */
+    public int getOccupants(Room room) {
+        return occupants[layout.indexOf(room)];
+    }
+
+    /**
+     * @return a uniformly random occupied room, or null if no room is occupied.
+     */
+    public Room getRandomOccupiedRoom(RandomGenerator rand) {
+        if (occupiedRoomCount == 0) {
+            return null;
+        }
+        return layout.getRoom(occupiedRooms[rand.nextInt(occupiedRoomCount)]);
+    }
+
+    /**
+     * Empties the room and makes it available for check-in again.
+     */
+    public void checkOut(Room room) {
+        int index = layout.indexOf(room);
+        int position = occupiedPositions[index];
+        if (position < 0) {
+            throw new IllegalStateException("Room " + room.getRoomNumber() + " is not occupied");
+        }
+        int last = occupiedRooms[--occupiedRoomCount];
+        occupiedRooms[position] = last;
+        occupiedPositions[last] = position;
+        occupiedPositions[index] = -1;
+
+        occupants[index] = 0;
+        freeRooms.set(index);
+        nextFreeRoom = Math.min(nextFreeRoom, index);
     }
 
     public List<Room> getOccupiedRooms() {
-        List<Room> occupiedRooms = new ArrayList<>();
-        for (Floor floor : floors.values()) {
-            for (Room room : floor.getRoomList()) {
-                if (room.getOccupants() > 0) {
-                    occupiedRooms.add(room);
-                }
+        List<Room> occupied = new ArrayList<>(occupiedRoomCount);
+        for (int i = 0; i < layout.getRoomCount(); i++) {
+            if (occupants[i] > 0) {
+                occupied.add(layout.getRoom(i));
             }
         }
-        return occupiedRooms;
+        return occupied;
+    }
+
+    private int nextFreeRoom() {
+        int room = freeRooms.nextSetBit(nextFreeRoom);
+        nextFreeRoom = room < 0 ? layout.getRoomCount() : room;
+        return room;
+    }
+
+    private void occupy(int room, int occupants) {
+        this.occupants[room] = occupants;
+        freeRooms.clear(room);
+        occupiedRooms[occupiedRoomCount] = room;
+        occupiedPositions[room] = occupiedRoomCount++;
     }
 
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        for (Floor floor : floors.values()) {
+        for (Floor floor : layout.getFloors().values()) {
             sb.append("Floor " )
                     .append(floor.getFloorNumber())
                     .append(":")
@@ -66,7 +232,7 @@ public class Building {
                 sb.append("    Room ")
                         .append(room.getRoomNumber())
                         .append(", Occupants: ")
-                        .append(room.getOccupants())
+                        .append(getOccupants(room))
                         .append(System.lineSeparator());
             }
         }
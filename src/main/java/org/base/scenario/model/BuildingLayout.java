@@ -0,0 +1,119 @@
+package org.base.scenario.model;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The floors and rooms of a building, or of a range of its floors, without their occupancy.
+ * <p>
+ * A layout only depends on the number of floors, the rooms per floor and the floor range, and never changes once it
+ * is built. Layouts are cached by those, so buildings for the same constraints share one set of {@link Floor} and
+ * {@link Room} objects and a {@link Building} only allocates its occupancy.
+ */
+public final class BuildingLayout {
+    // Layouts of up to this many building shapes are kept, a sweep over more shapes starts the cache over.
+    private static final int CACHE_SIZE = 64;
+    private static final Map<Key, BuildingLayout> CACHE = new ConcurrentHashMap<>();
+
+    private final int numberOfRoomsPerFloor;
+    private final int firstFloor;
+    private final int lastFloor;
+    // Room number of rooms[0], 1 unless the layout is a shard.
+    private final int firstRoomNumber;
+    private final Map<Integer, Floor> floors;
+    private final Room[] rooms;
+    private final int[] roomFloors;
+
+    private BuildingLayout(int numberOfRoomsPerFloor, int firstFloor, int lastFloor) {
+        this.numberOfRoomsPerFloor = numberOfRoomsPerFloor;
+        this.firstFloor = firstFloor;
+        this.lastFloor = lastFloor;
+        this.firstRoomNumber = (firstFloor - 1) * numberOfRoomsPerFloor + 1;
+        int roomCount = (lastFloor - firstFloor + 1) * numberOfRoomsPerFloor;
+        this.rooms = new Room[roomCount];
+        this.roomFloors = new int[roomCount];
+        Map<Integer, Floor> floors = new TreeMap<>();
+        int currentRoomNumber = firstRoomNumber;
+        for (int i = firstFloor; i <= lastFloor; i++) {
+            Floor floor = new Floor(i);
+            for (int j = 1; j <= numberOfRoomsPerFloor; j++) {
+                Room room = new Room(currentRoomNumber);
+                floor.addRoom(room);
+                rooms[currentRoomNumber - firstRoomNumber] = room;
+                roomFloors[currentRoomNumber - firstRoomNumber] = i;
+                currentRoomNumber++;
+            }
+            floors.put(i, floor);
+        }
+        this.floors = Collections.unmodifiableMap(floors);
+    }
+
+    public static BuildingLayout of(Constraints constraints) {
+        return of(constraints, 1, constraints.getNumberOfFloors());
+    }
+
+    /**
+     * @return the layout of the floors from {@code firstFloor} to {@code lastFloor} of the building.
+     */
+    public static BuildingLayout of(Constraints constraints, int firstFloor, int lastFloor) {
+        if (firstFloor < 1 || lastFloor < firstFloor || lastFloor > constraints.getNumberOfFloors()) {
+            throw new IllegalArgumentException("Invalid floor range " + firstFloor + " to " + lastFloor + " in a building with " + constraints.getNumberOfFloors() + " floors");
+        }
+        Key key = new Key(constraints.getNumberOfRoomsPerFloor(), firstFloor, lastFloor);
+        BuildingLayout layout = CACHE.get(key);
+        if (layout == null) {
+            if (CACHE.size() >= CACHE_SIZE) {
+                CACHE.clear();
+            }
+            layout = CACHE.computeIfAbsent(key, k -> new BuildingLayout(k.numberOfRoomsPerFloor(), k.firstFloor(), k.lastFloor()));
+        }
+        return layout;
+    }
+
+    public int getNumberOfRoomsPerFloor() {
+        return numberOfRoomsPerFloor;
+    }
+
+    public int getFirstFloor() {
+        return firstFloor;
+    }
+
+    public int getLastFloor() {
+        return lastFloor;
+    }
+
+    public Map<Integer, Floor> getFloors() {
+        return floors;
+    }
+
+    public int getRoomCount() {
+        return rooms.length;
+    }
+
+    /**
+     * @return the room at {@code index}, rooms are indexed by {@code roomNumber - firstRoomNumber}.
+     */
+    Room getRoom(int index) {
+        return rooms[index];
+    }
+
+    int indexOf(Room room) {
+        return room.getRoomNumber() - firstRoomNumber;
+    }
+
+    int getFloorNumber(int index) {
+        return roomFloors[index];
+    }
+
+    /**
+     * @return the index of the first room on the floor.
+     */
+    int firstRoom(int floorNumber) {
+        return (floorNumber - firstFloor) * numberOfRoomsPerFloor;
+    }
+
+    private record Key(int numberOfRoomsPerFloor, int firstFloor, int lastFloor) {
+    }
+}
@@ -2,9 +2,17 @@ package org.base.scenario.model;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.base.scenario.diagnostics.DiagnosticsMode;
+import org.base.scenario.io.ScenarioFormat;
+import org.jetbrains.annotations.Nullable;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @ConfigurationProperties(prefix = "constraints")
 @Component
 @Getter
@@ -19,4 +27,66 @@ public class Constraints {
     private int checkinEndTime;
     private int checkoutStartTime;
     private int checkoutEndTime;
+
+    private ScenarioFormat outputFormat = ScenarioFormat.TEXT;
+
+    // Streams each time slice to the output as it is generated instead of building the scenario in memory.
+    private boolean streaming;
+
+    // Writes <scenario file>.idx with the byte offset of every time slice, for SliceIndexedScenario.
+    private boolean sliceIndex;
+
+    // Formats the scenario in this many ranges of time slices at once, each on its own virtual thread, and writes
+    // <scenario file>.manifest.json. The ranges go into the scenario file, or into numbered part files.
+    private int exportChunks = 1;
+    private boolean exportPartFiles;
+
+    // Scenarios are written to <outputName>.<ext>, or <outputName>-<n>.<ext> when more than one is generated.
+    private String outputName = "scenario";
+    private int scenarioCount = 1;
+
+    // Master seed of a run. Each scenario derives its own seed from it, so a run with the same seed is reproducible.
+    // A seed is picked from the clock when it is not set.
+    @Nullable
+    private Long seed;
+
+    // Per-stage timing and allocation metrics, printed at the end of a run and optionally written as
+    // <outputName>.metrics.json next to each scenario.
+    private boolean metrics = true;
+    private boolean metricsJson;
+
+    // How popular each floor is as the destination of a check-in, and of an occupant that leaves during the day.
+    private FloorDistribution checkinDestinations = FloorDistribution.OCCUPANCY;
+    private FloorDistribution leaveDestinations = FloorDistribution.LOBBY_HEAVY;
+
+    // Stages of the in-memory pipeline, in order. Stages that are left out are skipped, destinations has to run before
+    // leave, checkout, return and normalize. The streaming generator always runs the full pipeline.
+    private List<String> stages = new ArrayList<>(List.of("checkin", "destinations", "leave", "checkout", "return", "diagnostics", "normalize"));
+    // Runs stages that touch different parts of the scenario concurrently.
+    private boolean parallelStages = true;
+    // Splits the building into this many floor ranges that generate check-in, leave and checkout requests in parallel.
+    // A scenario depends on the seed and the number of shards, not on the number of threads.
+    private int buildingShards = 1;
+
+    // What the diagnostics stage logs. Messages are printed asynchronously and dropped when more than
+    // diagnosticsQueueCapacity are waiting.
+    private DiagnosticsMode diagnostics = DiagnosticsMode.SUMMARY;
+    private int diagnosticsSampleRate = 100;
+    private int diagnosticsQueueCapacity = 1024;
+
+    // Replays each scenario against this many elevators to score it, 0 skips the replay. Scenarios whose mean wait,
+    // in ticks, is below replayMinMeanWait are not kept.
+    private int replayElevators;
+    private double replayMinMeanWait;
+
+    // Generates a scenario for every combination of the values given per constraint, by property name, instead of a
+    // batch, and writes their request volumes to <outputName>.sweep.csv. Values are a list, 10,20,40, or a range with
+    // an optional step, 10..40:10. The configurations are spread over sweepWorkers threads, 0 uses one per processor.
+    private Map<String, String> sweep = new LinkedHashMap<>();
+    private int sweepWorkers;
+
+    // Serves scenarios over HTTP instead of generating a batch, see ScenarioServer.
+    private boolean server;
+    private int serverPort = 8080;
+    private long serverCacheBytes = 256L * 1024 * 1024;
 }
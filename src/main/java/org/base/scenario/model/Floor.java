@@ -5,12 +5,14 @@ import lombok.Getter;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Free and occupied rooms are tracked by the {@link Building}.
+ */
 @Getter
 public class Floor {
 
     private final int floorNumber;
     private final List<Room> roomList = new ArrayList<>();
-    private int currentIndex = 0;
 
     public Floor(int roomsPerFloor) {
         this.floorNumber = roomsPerFloor;
@@ -19,19 +21,4 @@ public class Floor {
     public void addRoom(Room room) {
         this.roomList.add(room);
     }
-
-    public Room getAvailableRoom() {
-        if (currentIndex < roomList.size()) {
-            return roomList.get(currentIndex);
-        }
-        return null;
-    }
-
-    public void checkInOccupants(int occupants) {
-        Room room = getAvailableRoom();
-        if (room != null) {
-            room.setOccupants(occupants);
-            currentIndex++;
-        }
-    }
 }
@@ -0,0 +1,57 @@
+package org.base.scenario.model;
+
+import java.util.Arrays;
+
+/**
+ * How popular each floor is as a destination, see {@code constraints.checkin-destinations} and
+ * {@code constraints.leave-destinations}.
+ */
+public enum FloorDistribution {
+    /**
+     * Every floor is equally likely.
+     */
+    UNIFORM,
+
+    /**
+     * Floors are as likely as the number of rooms checked into on them, the lobby is never picked.
+     */
+    OCCUPANCY,
+
+    /**
+     * The lobby takes 70% of the trips, the other floors share the rest equally.
+     */
+    LOBBY_HEAVY,
+
+    /**
+     * The top floor has an amenity, like a restaurant or a pool, that takes 40% of the trips. The lobby takes 30%, the
+     * other floors share the rest equally.
+     */
+    TOP_FLOOR_AMENITY;
+
+    /**
+     * @param checkins the number of check-ins per floor, indexed by floor number, used by {@link #OCCUPANCY}.
+     * @return the relative weight of every floor, indexed by floor number. Index 0 is always 0.
+     */
+    public double[] weights(int floors, long[] checkins) {
+        double[] weights = new double[floors + 1];
+        switch (this) {
+            case UNIFORM -> Arrays.fill(weights, 1, floors + 1, 1);
+            case OCCUPANCY -> {
+                for (int floor = 1; floor <= floors && floor < checkins.length; floor++) {
+                    weights[floor] = checkins[floor];
+                }
+            }
+            case LOBBY_HEAVY -> {
+                Arrays.fill(weights, 2, floors + 1, .3 / (floors - 1));
+                weights[1] = .7;
+            }
+            case TOP_FLOOR_AMENITY -> {
+                // With 2 floors the lobby is the only other floor and takes the rest.
+                Arrays.fill(weights, 2, floors, floors > 2 ? .3 / (floors - 2) : 0);
+                weights[1] = floors > 2 ? .3 : .6;
+                weights[floors] = .4;
+            }
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,265 @@
+package org.base.scenario.model;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * The occupants of a building while a scenario is generated, one entry per guest instead of one per room.
+ * <p>
+ * Occupants are numbered in check-in order and stored as parallel primitive arrays: the room, the floor of the room,
+ * the floor the occupant is on and the occupant's state. The occupants that are in their room are also kept in a dense
+ * array, so a random one can be drawn and moved out of it in constant time. Only those can leave, which keeps a floor
+ * from sending out more occupants than live on it.
+ * <p>
+ * Rooms are the room numbers of the {@link Building}, a room holds one party at a time. A party can also be booked
+ * ahead of its check-in time, it arrives in its room later, in booking order.
+ */
+public class OccupantTable {
+    public static final byte IN_ROOM = 0;
+    public static final byte AWAY = 1;
+    public static final byte CHECKED_OUT = 2;
+    public static final byte BOOKED = 3;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int[] rooms = new int[INITIAL_CAPACITY];
+    private int[] floors = new int[INITIAL_CAPACITY];
+    private int[] locations = new int[INITIAL_CAPACITY];
+    private byte[] states = new byte[INITIAL_CAPACITY];
+    private int occupantCount;
+    // The next occupant in check-in order to arrive, see arrive.
+    private int nextArrival;
+    private int partyCount;
+
+    private int[] present = new int[INITIAL_CAPACITY];
+    // Position of each occupant in present, or -1 if the occupant is booked, away or checked out.
+    private int[] presentPositions = new int[INITIAL_CAPACITY];
+    private int presentCount;
+
+    // The party in each room, by room number: its first occupant and its size, 0 when the room is free.
+    private int[] firstOccupants = new int[INITIAL_CAPACITY];
+    private int[] partySizes = new int[INITIAL_CAPACITY];
+
+    public OccupantTable() {
+    }
+
+    private OccupantTable(OccupantTable other) {
+        this.rooms = other.rooms.clone();
+        this.floors = other.floors.clone();
+        this.locations = other.locations.clone();
+        this.states = other.states.clone();
+        this.occupantCount = other.occupantCount;
+        this.nextArrival = other.nextArrival;
+        this.partyCount = other.partyCount;
+        this.present = other.present.clone();
+        this.presentPositions = other.presentPositions.clone();
+        this.presentCount = other.presentCount;
+        this.firstOccupants = other.firstOccupants.clone();
+        this.partySizes = other.partySizes.clone();
+    }
+
+    /**
+     * @return an independent copy of the table and the state of every occupant.
+     */
+    public OccupantTable copy() {
+        return new OccupantTable(this);
+    }
+
+    /**
+     * Checks a party into the room, its occupants start out in the room.
+     * @return the first occupant of the party, the others follow it.
+     */
+    public int checkIn(int room, int floor, int occupants) {
+        return add(room, floor, occupants, IN_ROOM);
+    }
+
+    /**
+     * Books the room for a party that arrives later, see {@link #arrive(int)}. Until then its occupants cannot leave.
+     * @return the first occupant of the party, the others follow it.
+     */
+    public int book(int room, int floor, int occupants) {
+        return add(room, floor, occupants, BOOKED);
+    }
+
+    /**
+     * Lets the next occupants in check-in order into their rooms, if they are booked. Occupants whose party checked out
+     * meanwhile stay checked out.
+     */
+    public void arrive(int occupants) {
+        if (nextArrival + occupants > occupantCount) {
+            throw new IllegalStateException("Only " + (occupantCount - nextArrival) + " occupants are booked, " + occupants + " arrive");
+        }
+        for (int i = 0; i < occupants; i++) {
+            int occupant = nextArrival++;
+            if (states[occupant] == BOOKED) {
+                states[occupant] = IN_ROOM;
+                addPresent(occupant);
+            }
+        }
+    }
+
+    private int add(int room, int floor, int occupants, byte state) {
+        if (occupants < 1) {
+            throw new IllegalArgumentException("A party needs at least 1 occupant: " + occupants);
+        }
+        if (room >= partySizes.length) {
+            int capacity = Math.max(partySizes.length * 2, room + 1);
+            firstOccupants = Arrays.copyOf(firstOccupants, capacity);
+            partySizes = Arrays.copyOf(partySizes, capacity);
+        }
+        if (partySizes[room] > 0) {
+            throw new IllegalStateException("Room " + room + " is occupied");
+        }
+        ensureCapacity(occupantCount + occupants);
+        firstOccupants[room] = occupantCount;
+        partySizes[room] = occupants;
+        for (int i = 0; i < occupants; i++) {
+            int occupant = occupantCount++;
+            rooms[occupant] = room;
+            floors[occupant] = floor;
+            locations[occupant] = floor;
+            states[occupant] = state;
+            if (state == IN_ROOM) {
+                addPresent(occupant);
+            } else {
+                presentPositions[occupant] = -1;
+            }
+        }
+        partyCount++;
+        return firstOccupants[room];
+    }
+
+    /**
+     * Moves the occupant's room to another floor, for parties whose floor is drawn after they are booked. An occupant
+     * that is away keeps its location.
+     */
+    public void setFloor(int occupant, int floor) {
+        floors[checkOccupant(occupant)] = floor;
+        if (states[occupant] == IN_ROOM || states[occupant] == BOOKED) {
+            locations[occupant] = floor;
+        }
+    }
+
+    /**
+     * @return a uniformly random occupant that is in its room, or -1 if there is none.
+     */
+    public int getRandomPresentOccupant(RandomGenerator rand) {
+        return presentCount == 0 ? -1 : present[rand.nextInt(presentCount)];
+    }
+
+    /**
+     * Moves an occupant that is in its room to another floor.
+     */
+    public void leave(int occupant, int destinationFloor) {
+        checkState(occupant, IN_ROOM);
+        removePresent(occupant);
+        states[occupant] = AWAY;
+        locations[occupant] = destinationFloor;
+    }
+
+    /**
+     * Brings an occupant that is away back to its room. An occupant whose party checked out meanwhile stays checked
+     * out.
+     */
+    public void returnToRoom(int occupant) {
+        if (getState(occupant) == CHECKED_OUT) {
+            return;
+        }
+        checkState(occupant, AWAY);
+        states[occupant] = IN_ROOM;
+        locations[occupant] = floors[occupant];
+        addPresent(occupant);
+    }
+
+    /**
+     * Checks out the party in the room, occupants that are away check out with it. The room can be checked into again.
+     * @return the floor of the room.
+     */
+    public int checkOut(int room) {
+        if (room >= partySizes.length || partySizes[room] == 0) {
+            throw new IllegalStateException("Room " + room + " is not occupied");
+        }
+        int first = firstOccupants[room];
+        for (int occupant = first; occupant < first + partySizes[room]; occupant++) {
+            if (states[occupant] == IN_ROOM) {
+                removePresent(occupant);
+            }
+            states[occupant] = CHECKED_OUT;
+            locations[occupant] = 1;
+        }
+        partySizes[room] = 0;
+        return floors[first];
+    }
+
+    public int getOccupantCount() {
+        return occupantCount;
+    }
+
+    /**
+     * @return the number of parties checked in or booked so far, including the ones that checked out.
+     */
+    public int getPartyCount() {
+        return partyCount;
+    }
+
+    public int getPresentCount() {
+        return presentCount;
+    }
+
+    public int getRoom(int occupant) {
+        return rooms[checkOccupant(occupant)];
+    }
+
+    public int getFloor(int occupant) {
+        return floors[checkOccupant(occupant)];
+    }
+
+    /**
+     * @return the floor the occupant is on, the lobby once the occupant checked out.
+     */
+    public int getLocation(int occupant) {
+        return locations[checkOccupant(occupant)];
+    }
+
+    public byte getState(int occupant) {
+        return states[checkOccupant(occupant)];
+    }
+
+    private void addPresent(int occupant) {
+        present[presentCount] = occupant;
+        presentPositions[occupant] = presentCount++;
+    }
+
+    private void removePresent(int occupant) {
+        int position = presentPositions[occupant];
+        int last = present[--presentCount];
+        present[position] = last;
+        presentPositions[last] = position;
+        presentPositions[occupant] = -1;
+    }
+
+    private void checkState(int occupant, byte state) {
+        if (states[checkOccupant(occupant)] != state) {
+            throw new IllegalStateException("Occupant " + occupant + " is in state " + states[occupant] + ", expected " + state);
+        }
+    }
+
+    private int checkOccupant(int occupant) {
+        if (occupant < 0 || occupant >= occupantCount) {
+            throw new IndexOutOfBoundsException("Occupant " + occupant + " out of " + occupantCount);
+        }
+        return occupant;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > rooms.length) {
+            int newCapacity = Math.max(rooms.length * 2, capacity);
+            rooms = Arrays.copyOf(rooms, newCapacity);
+            floors = Arrays.copyOf(floors, newCapacity);
+            locations = Arrays.copyOf(locations, newCapacity);
+            states = Arrays.copyOf(states, newCapacity);
+            present = Arrays.copyOf(present, newCapacity);
+            presentPositions = Arrays.copyOf(presentPositions, newCapacity);
+        }
+    }
+}
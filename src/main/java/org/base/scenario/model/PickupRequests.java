@@ -0,0 +1,331 @@
+package org.base.scenario.model;
+
+import org.base.scenario.io.PickupRequestConsumer;
+import org.base.scenario.io.SliceSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.random.RandomGenerator;
+
+/**
+ * Compact store of pickup requests indexed by time slice.
+ * <p>
+ * Each request is packed into a single long, the current floor in the high word and the destination floor in the
+ * low word, and every time slice owns one growable array of records. A scenario therefore costs one array per time
+ * slice instead of one object per request.
+ * <p>
+ * A time slice only exists once a request is added to it, which mirrors the sparse keys of the map this store
+ * replaced. {@link MoveRequest} remains available as a detached view through {@link #getMoveRequest(int, int)}.
+ */
+public class PickupRequests implements SliceSource {
+    private static final long[] EMPTY = new long[0];
+    private static final int INITIAL_SLICE_CAPACITY = 16;
+
+    private long[][] records = new long[0][];
+    // -1 marks a time slice without requests.
+    private int[] sizes = new int[0];
+
+    public static long pack(int currentFloor, int destinationFloor) {
+        return (long) currentFloor << 32 | destinationFloor & 0xFFFFFFFFL;
+    }
+
+    public static int currentFloor(long record) {
+        return (int) (record >>> 32);
+    }
+
+    public static int destinationFloor(long record) {
+        return (int) record;
+    }
+
+    public static PickupRequests of(Map<Integer, List<MoveRequest>> pickupRequests) {
+        PickupRequests store = new PickupRequests();
+        for (Map.Entry<Integer, List<MoveRequest>> entry : pickupRequests.entrySet()) {
+            for (MoveRequest request : entry.getValue()) {
+                store.add(entry.getKey(), request.getCurrentFloor(), request.getDestinationFloor());
+            }
+        }
+        return store;
+    }
+
+    public boolean contains(int timeSlice) {
+        return timeSlice >= 0 && timeSlice < sizes.length && sizes[timeSlice] >= 0;
+    }
+
+    /**
+     * @return the first time slice with requests, or -1 if the store is empty.
+     */
+    public int getFirstTimeSlice() {
+        return nextTimeSlice(-1);
+    }
+
+    /**
+     * @return the first time slice with requests after {@code timeSlice}, or -1 if there is none.
+     */
+    public int nextTimeSlice(int timeSlice) {
+        for (int i = Math.max(timeSlice + 1, 0); i < sizes.length; i++) {
+            if (sizes[i] >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the last time slice with requests, or -1 if the store is empty.
+     */
+    public int getLastTimeSlice() {
+        for (int i = sizes.length - 1; i >= 0; i--) {
+            if (sizes[i] >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int[] getTimeSlices() {
+        return getTimeSlices(0, sizes.length - 1);
+    }
+
+    /**
+     * @return the time slices with requests between {@code first} and {@code last}, inclusive.
+     */
+    public int[] getTimeSlices(int first, int last) {
+        int from = Math.max(first, 0);
+        int to = Math.min(last, sizes.length - 1);
+        int count = 0;
+        for (int i = from; i <= to; i++) {
+            if (sizes[i] >= 0) {
+                count++;
+            }
+        }
+        int[] timeSlices = new int[count];
+        for (int i = from, j = 0; i <= to; i++) {
+            if (sizes[i] >= 0) {
+                timeSlices[j++] = i;
+            }
+        }
+        return timeSlices;
+    }
+
+    @Override
+    public int size(int timeSlice) {
+        return contains(timeSlice) ? sizes[timeSlice] : 0;
+    }
+
+    public long getRequestCount() {
+        long count = 0;
+        for (int size : sizes) {
+            count += Math.max(size, 0);
+        }
+        return count;
+    }
+
+    public int getMaxSliceSize() {
+        int max = 0;
+        for (int size : sizes) {
+            max = Math.max(max, size);
+        }
+        return max;
+    }
+
+    public long get(int timeSlice, int index) {
+        checkIndex(timeSlice, index);
+        return records[timeSlice][index];
+    }
+
+    public int getCurrentFloor(int timeSlice, int index) {
+        return currentFloor(get(timeSlice, index));
+    }
+
+    public int getDestinationFloor(int timeSlice, int index) {
+        return destinationFloor(get(timeSlice, index));
+    }
+
+    public void set(int timeSlice, int index, long record) {
+        checkIndex(timeSlice, index);
+        records[timeSlice][index] = record;
+    }
+
+    public void setDestinationFloor(int timeSlice, int index, int destinationFloor) {
+        set(timeSlice, index, pack(getCurrentFloor(timeSlice, index), destinationFloor));
+    }
+
+    public void add(int timeSlice, int currentFloor, int destinationFloor) {
+        add(timeSlice, pack(currentFloor, destinationFloor));
+    }
+
+    public void add(int timeSlice, long record) {
+        int size = ensureCapacity(timeSlice, 1);
+        records[timeSlice][size] = record;
+        sizes[timeSlice] = size + 1;
+    }
+
+    /**
+     * Appends the records of every time slice of {@code other} to the same time slice of this store.
+     */
+    public void addAll(PickupRequests other) {
+        for (int timeSlice = other.getFirstTimeSlice(); timeSlice >= 0; timeSlice = other.nextTimeSlice(timeSlice)) {
+            int count = other.sizes[timeSlice];
+            int size = ensureCapacity(timeSlice, count);
+            System.arraycopy(other.records[timeSlice], 0, records[timeSlice], size, count);
+            sizes[timeSlice] = size + count;
+        }
+    }
+
+    /**
+     * @return an independent copy of the store, with the same time slices.
+     */
+    public PickupRequests copy() {
+        PickupRequests copy = new PickupRequests();
+        copy.records = new long[records.length][];
+        for (int timeSlice = 0; timeSlice < records.length; timeSlice++) {
+            copy.records[timeSlice] = sizes[timeSlice] > 0 ? Arrays.copyOf(records[timeSlice], sizes[timeSlice]) : EMPTY;
+        }
+        copy.sizes = sizes.clone();
+        return copy;
+    }
+
+    /**
+     * Inserts a record at {@code index}, shifting the following records of the time slice.
+     */
+    public void insert(int timeSlice, int index, long record) {
+        int size = ensureCapacity(timeSlice, 1);
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for time slice " + timeSlice + " of size " + size);
+        }
+        long[] slice = records[timeSlice];
+        System.arraycopy(slice, index, slice, index + 1, size - index);
+        slice[index] = record;
+        sizes[timeSlice] = size + 1;
+    }
+
+    /**
+     * Appends {@code count} copies of a record to the time slice.
+     */
+    public void fill(int timeSlice, long record, int count) {
+        int size = ensureCapacity(timeSlice, count);
+        Arrays.fill(records[timeSlice], size, size + count, record);
+        sizes[timeSlice] = size + count;
+    }
+
+    /**
+     * Moves every record from {@code start} to the end of the time slice to a random position of the time slice, in a
+     * single pass. Appending records and scattering them places each one at a uniformly random position, like
+     * {@link #insert(int, int, long)} at a random index would, without shifting the rest of the time slice.
+     */
+    public void scatter(int timeSlice, int start, RandomGenerator rand) {
+        long[] slice = records[timeSlice];
+        for (int i = start; i < size(timeSlice); i++) {
+            int j = rand.nextInt(i + 1);
+            long record = slice[i];
+            slice[i] = slice[j];
+            slice[j] = record;
+        }
+    }
+
+    /**
+     * Drops a time slice and releases its records.
+     */
+    public void remove(int timeSlice) {
+        if (contains(timeSlice)) {
+            sizes[timeSlice] = -1;
+            records[timeSlice] = EMPTY;
+        }
+    }
+
+    /**
+     * Visits every request in time slice order.
+     */
+    public void forEach(PickupRequestConsumer consumer) {
+        forEach(0, sizes.length - 1, consumer);
+    }
+
+    /**
+     * Visits the requests of the time slices from {@code first} to {@code last}, inclusive, in time slice order.
+     */
+    @Override
+    public void forEach(int first, int last, PickupRequestConsumer consumer) {
+        for (int timeSlice = Math.max(first, 0); timeSlice <= last && timeSlice < sizes.length; timeSlice++) {
+            long[] slice = records[timeSlice];
+            for (int i = 0; i < sizes[timeSlice]; i++) {
+                consumer.accept(timeSlice, currentFloor(slice[i]), destinationFloor(slice[i]));
+            }
+        }
+    }
+
+    /**
+     * @return a detached copy of a request, changes to it are not written back.
+     */
+    public MoveRequest getMoveRequest(int timeSlice, int index) {
+        long record = get(timeSlice, index);
+        return new MoveRequest(currentFloor(record), destinationFloor(record));
+    }
+
+    /**
+     * Materializes the store as the map of {@link MoveRequest} lists used before the columnar store existed.
+     */
+    public Map<Integer, List<MoveRequest>> toMoveRequests() {
+        Map<Integer, List<MoveRequest>> moveRequests = new TreeMap<>();
+        for (int timeSlice = getFirstTimeSlice(); timeSlice >= 0; timeSlice = nextTimeSlice(timeSlice)) {
+            List<MoveRequest> requests = new ArrayList<>(sizes[timeSlice]);
+            for (int i = 0; i < sizes[timeSlice]; i++) {
+                requests.add(getMoveRequest(timeSlice, i));
+            }
+            moveRequests.put(timeSlice, requests);
+        }
+        return moveRequests;
+    }
+
+    /**
+     * Makes room for the time slices up to {@code lastTimeSlice} without creating them. Once reserved, requests can be
+     * added to different time slices from different threads, as long as no two threads touch the same time slice.
+     */
+    public void reserve(int lastTimeSlice) {
+        if (lastTimeSlice >= sizes.length) {
+            grow(lastTimeSlice + 1);
+        }
+    }
+
+    /**
+     * Creates the time slice if needed and grows it to hold {@code additional} more records.
+     * @return the current size of the time slice.
+     */
+    private int ensureCapacity(int timeSlice, int additional) {
+        if (timeSlice < 0) {
+            throw new IllegalArgumentException("Time slice cannot be negative: " + timeSlice);
+        }
+        if (timeSlice >= sizes.length) {
+            grow(Math.max(timeSlice + 1, sizes.length * 2));
+        }
+        int size = Math.max(sizes[timeSlice], 0);
+        long[] slice = records[timeSlice];
+        if (size + additional > slice.length) {
+            records[timeSlice] = Arrays.copyOf(slice, Math.max(size + additional, Math.max(INITIAL_SLICE_CAPACITY, slice.length * 2)));
+        }
+        sizes[timeSlice] = size;
+        return size;
+    }
+
+    private void grow(int length) {
+        int previous = sizes.length;
+        sizes = Arrays.copyOf(sizes, length);
+        Arrays.fill(sizes, previous, length, -1);
+        records = Arrays.copyOf(records, length);
+        Arrays.fill(records, previous, length, EMPTY);
+    }
+
+    private void checkIndex(int timeSlice, int index) {
+        if (index < 0 || index >= size(timeSlice)) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for time slice " + timeSlice + " of size " + size(timeSlice));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PickupRequests(timeSlices=" + getTimeSlices().length + ", requests=" + getRequestCount() + ")";
+    }
+}
@@ -1,15 +1,14 @@
 package org.base.scenario.model;
 
 import lombok.Getter;
-import lombok.Setter;
 
+/**
+ * A room of a {@link BuildingLayout}, its occupants are tracked by the {@link Building}.
+ */
 @Getter
 public class Room {
     private final int roomNumber;
 
-    @Setter
-    int occupants;
-
     public Room(int roomNumber) {
         this.roomNumber = roomNumber;
     }
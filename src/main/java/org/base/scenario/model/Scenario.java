@@ -1,34 +1,69 @@
 package org.base.scenario.model;
 
-import java.io.IOException;
-import java.io.PrintWriter;
-import java.nio.charset.StandardCharsets;
+import org.base.scenario.io.ChunkedScenarioExporter;
+import org.base.scenario.io.ExportManifest;
+import org.base.scenario.io.ScenarioFormat;
+import org.base.scenario.io.ScenarioWriter;
+
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 
 public class Scenario {
 
-    private final Map<Integer, List<MoveRequest>> pickupRequests;
+    private final PickupRequests pickupRequests;
 
-    public Scenario(Map<Integer, List<MoveRequest>> pickupRequests) {
+    public Scenario(PickupRequests pickupRequests) {
         this.pickupRequests = pickupRequests;
     }
 
+    public Scenario(Map<Integer, List<MoveRequest>> pickupRequests) {
+        this(PickupRequests.of(pickupRequests));
+    }
+
+    public PickupRequests getPickupRequests() {
+        return pickupRequests;
+    }
+
+    /**
+     * @return a detached {@link MoveRequest} view of the scenario.
+     */
+    public Map<Integer, List<MoveRequest>> getMoveRequests() {
+        return pickupRequests.toMoveRequests();
+    }
+
     public void generatePickupRequests() {
-        // TODO: names could be set via properties and generates by env name.
-        //   #---
-        //     spring env name.
-        String name = "scenario";
-        try (PrintWriter writer = new PrintWriter(name + ".txt", StandardCharsets.UTF_8)) {
-            for (Map.Entry<Integer, List<MoveRequest>> entry : pickupRequests.entrySet()) {
-                Integer timeSlice = entry.getKey();
-                List<MoveRequest> requests = entry.getValue();
-                for (MoveRequest request : requests) {
-                    writer.println(String.format("%s, %s, %s", timeSlice, request.getCurrentFloor(), request.getDestinationFloor()));
-                }
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("TODO", e);
+        generatePickupRequests(ScenarioFormat.TEXT);
+    }
+
+    public void generatePickupRequests(ScenarioFormat format) {
+        generatePickupRequests(Path.of("scenario" + format.getExtension()), format);
+    }
+
+    public void generatePickupRequests(Path path, ScenarioFormat format) {
+        generatePickupRequests(path, format, false);
+    }
+
+    /**
+     * @param sliceIndex whether to write a {@link org.base.scenario.io.SliceIndex} next to the file.
+     */
+    public void generatePickupRequests(Path path, ScenarioFormat format, boolean sliceIndex) {
+        try (ScenarioWriter writer = ScenarioWriter.open(path, format, sliceIndex)) {
+            writePickupRequests(writer);
         }
     }
+
+    /**
+     * Writes the scenario in {@code chunks} ranges of time slices that are formatted concurrently, see
+     * {@link ChunkedScenarioExporter}.
+     *
+     * @param partFiles whether to write every chunk to its own file instead of into {@code path}.
+     */
+    public ExportManifest exportPickupRequests(Path path, ScenarioFormat format, int chunks, boolean partFiles) {
+        return new ChunkedScenarioExporter(format, chunks, partFiles).export(path, pickupRequests);
+    }
+
+    public void writePickupRequests(ScenarioWriter writer) {
+        pickupRequests.forEach(writer::write);
+    }
 }
@@ -0,0 +1,90 @@
+package org.base.scenario.model;
+
+import org.base.scenario.io.PickupRequestConsumer;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * The packed pickup requests of a single time slice, see {@link PickupRequests#pack(int, int)}.
+ * Instances are meant to be reset and refilled for every time slice instead of being reallocated.
+ */
+public class TimeSliceRequests {
+    private int timeSlice;
+    private long[] records = new long[16];
+    private int size;
+
+    public int getTimeSlice() {
+        return timeSlice;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long get(int index) {
+        checkIndex(index);
+        return records[index];
+    }
+
+    public int getCurrentFloor(int index) {
+        return PickupRequests.currentFloor(get(index));
+    }
+
+    public int getDestinationFloor(int index) {
+        return PickupRequests.destinationFloor(get(index));
+    }
+
+    public void reset(int timeSlice) {
+        this.timeSlice = timeSlice;
+        this.size = 0;
+    }
+
+    public void add(int currentFloor, int destinationFloor) {
+        add(PickupRequests.pack(currentFloor, destinationFloor));
+    }
+
+    public void add(long record) {
+        ensureCapacity(size + 1);
+        records[size++] = record;
+    }
+
+    /**
+     * Appends {@code count} copies of a record.
+     */
+    public void fill(long record, int count) {
+        ensureCapacity(size + count);
+        Arrays.fill(records, size, size + count, record);
+        size += count;
+    }
+
+    /**
+     * Moves every record from {@code start} on to a random position, see {@link PickupRequests#scatter}.
+     */
+    public void scatter(int start, RandomGenerator rand) {
+        for (int i = start; i < size; i++) {
+            int j = rand.nextInt(i + 1);
+            long record = records[i];
+            records[i] = records[j];
+            records[j] = record;
+        }
+    }
+
+    public void forEach(PickupRequestConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            consumer.accept(timeSlice, PickupRequests.currentFloor(records[i]), PickupRequests.destinationFloor(records[i]));
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > records.length) {
+            records = Arrays.copyOf(records, Math.max(capacity, records.length * 2));
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+    }
+}
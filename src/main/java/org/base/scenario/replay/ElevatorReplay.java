@@ -0,0 +1,297 @@
+package org.base.scenario.replay;
+
+import org.base.scenario.io.PickupRequestConsumer;
+import org.base.scenario.model.Scenario;
+
+import java.util.Arrays;
+
+/**
+ * Replays a scenario against a bank of elevators to score it without the external simulator.
+ * <p>
+ * Every record of the scenario, padding included, is one tick, and an elevator moves one floor per tick. A request
+ * goes to the closest elevator that may respond to it under the rules on {@code ScenarioApplication}: the elevator is
+ * idle, or it is moving in the direction of the request and is at least 2 floors away from it. Requests no elevator
+ * may respond to wait in a queue until one can. Elevators serve their stops in the direction they are moving, turn
+ * around when there are no stops ahead, and become idle when they have none left.
+ * <p>
+ * All state is kept in primitive arrays that are reused by {@link #reset()}, so replaying does not allocate once the
+ * arrays have grown to the size of the scenarios.
+ */
+public class ElevatorReplay implements PickupRequestConsumer {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int floors;
+    private final int elevators;
+
+    private final int[] positions;
+    private final int[] directions;
+    // Pickups and drop-offs per elevator and floor, at elevator * (floors + 1) + floor.
+    private final int[] stops;
+    private final int[] stopCounts;
+    // Requests assigned to each elevator but not picked up yet, and requests riding each elevator.
+    private final int[][] pickups;
+    private final int[] pickupCounts;
+    private final int[][] riders;
+    private final int[] riderCounts;
+
+    private int[] fromFloors = new int[INITIAL_CAPACITY];
+    private int[] toFloors = new int[INITIAL_CAPACITY];
+    private long[] requestTicks = new long[INITIAL_CAPACITY];
+    private int requestCount;
+    private int[] waiting = new int[INITIAL_CAPACITY];
+    private int waitingCount;
+    private int undelivered;
+
+    private long tick;
+    private long waitSum;
+    private int maxWait;
+    private int[] waitHistogram = new int[INITIAL_CAPACITY];
+    private long tripSum;
+    private int maxTrip;
+    private long queueDepthSum;
+    private int maxQueueDepth;
+
+    /**
+     * @param floors    the number of floors, requests must be between floor 1 and this floor.
+     * @param elevators the number of elevators, all of which start idle on floor 1.
+     */
+    public ElevatorReplay(int floors, int elevators) {
+        if (floors < 2 || elevators < 1) {
+            throw new IllegalArgumentException("A replay needs at least 2 floors and 1 elevator: " + floors + " floors, " + elevators + " elevators");
+        }
+        this.floors = floors;
+        this.elevators = elevators;
+        this.positions = new int[elevators];
+        this.directions = new int[elevators];
+        this.stops = new int[elevators * (floors + 1)];
+        this.stopCounts = new int[elevators];
+        this.pickups = new int[elevators][INITIAL_CAPACITY];
+        this.pickupCounts = new int[elevators];
+        this.riders = new int[elevators][INITIAL_CAPACITY];
+        this.riderCounts = new int[elevators];
+        reset();
+    }
+
+    public static ReplayReport replay(Scenario scenario, int floors, int elevators) {
+        ElevatorReplay replay = new ElevatorReplay(floors, elevators);
+        scenario.getPickupRequests().forEach(replay);
+        return replay.finish();
+    }
+
+    /**
+     * Clears the replay for the next scenario, keeping the arrays it has grown.
+     */
+    public void reset() {
+        Arrays.fill(positions, 1);
+        Arrays.fill(directions, 0);
+        Arrays.fill(stops, 0);
+        Arrays.fill(stopCounts, 0);
+        Arrays.fill(pickupCounts, 0);
+        Arrays.fill(riderCounts, 0);
+        Arrays.fill(waitHistogram, 0);
+        requestCount = 0;
+        waitingCount = 0;
+        undelivered = 0;
+        tick = 0;
+        waitSum = 0;
+        maxWait = 0;
+        tripSum = 0;
+        maxTrip = 0;
+        queueDepthSum = 0;
+        maxQueueDepth = 0;
+    }
+
+    /**
+     * Advances the replay by one tick, adding the request unless the record is padding.
+     */
+    @Override
+    public void accept(int timeSlice, int currentFloor, int destinationFloor) {
+        if (currentFloor != 0 || destinationFloor != 0) {
+            addRequest(currentFloor, destinationFloor);
+        }
+        tick();
+    }
+
+    /**
+     * Runs the elevators until every request has been delivered.
+     */
+    public ReplayReport finish() {
+        // Every elevator reaches any floor within 2 * floors ticks, a longer run means a request can never be served.
+        long deadline = tick + (long) (undelivered + 1) * 2 * floors;
+        while (undelivered > 0) {
+            if (tick > deadline) {
+                throw new IllegalStateException(undelivered + " requests were not delivered after " + tick + " ticks");
+            }
+            tick();
+        }
+        return new ReplayReport(elevators, requestCount, tick,
+                mean(waitSum, requestCount), waitPercentile(.95), maxWait,
+                mean(tripSum, requestCount), maxTrip,
+                mean(queueDepthSum, tick), maxQueueDepth);
+    }
+
+    private void addRequest(int from, int to) {
+        if (from < 1 || from > floors || to < 1 || to > floors || from == to) {
+            throw new IllegalArgumentException("Invalid request from floor " + from + " to floor " + to + " in a building with " + floors + " floors");
+        }
+        if (requestCount == fromFloors.length) {
+            int capacity = requestCount * 2;
+            fromFloors = Arrays.copyOf(fromFloors, capacity);
+            toFloors = Arrays.copyOf(toFloors, capacity);
+            requestTicks = Arrays.copyOf(requestTicks, capacity);
+        }
+        int request = requestCount++;
+        fromFloors[request] = from;
+        toFloors[request] = to;
+        requestTicks[request] = tick;
+        if (waitingCount == waiting.length) {
+            waiting = Arrays.copyOf(waiting, waitingCount * 2);
+        }
+        waiting[waitingCount++] = request;
+        undelivered++;
+    }
+
+    private void tick() {
+        assignWaitingRequests();
+        queueDepthSum += waitingCount;
+        maxQueueDepth = Math.max(maxQueueDepth, waitingCount);
+        for (int elevator = 0; elevator < elevators; elevator++) {
+            serve(elevator);
+            positions[elevator] += directions[elevator];
+        }
+        tick++;
+    }
+
+    /**
+     * Hands waiting requests, oldest first, to the closest elevator that may respond to them.
+     */
+    private void assignWaitingRequests() {
+        int stillWaiting = 0;
+        for (int i = 0; i < waitingCount; i++) {
+            int request = waiting[i];
+            int elevator = closestElevator(fromFloors[request], Integer.signum(toFloors[request] - fromFloors[request]));
+            if (elevator < 0) {
+                waiting[stillWaiting++] = request;
+            } else {
+                pickups[elevator] = append(pickups[elevator], pickupCounts[elevator]++, request);
+                addStop(elevator, fromFloors[request]);
+            }
+        }
+        waitingCount = stillWaiting;
+    }
+
+    private int closestElevator(int floor, int direction) {
+        int closest = -1;
+        int closestDistance = Integer.MAX_VALUE;
+        for (int elevator = 0; elevator < elevators; elevator++) {
+            int distance;
+            if (directions[elevator] == 0 && stopCounts[elevator] == 0) {
+                distance = Math.abs(floor - positions[elevator]);
+            } else if (directions[elevator] == direction && (floor - positions[elevator]) * direction >= 2) {
+                distance = (floor - positions[elevator]) * direction;
+            } else {
+                continue;
+            }
+            if (distance < closestDistance) {
+                closest = elevator;
+                closestDistance = distance;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Drops off and picks up at the elevator's floor, then picks the direction of its next stop.
+     */
+    private void serve(int elevator) {
+        int floor = positions[elevator];
+        int[] riding = riders[elevator];
+        int ridingCount = 0;
+        for (int i = 0; i < riderCounts[elevator]; i++) {
+            int request = riding[i];
+            if (toFloors[request] == floor) {
+                removeStop(elevator, floor);
+                int trip = (int) (tick - requestTicks[request]);
+                tripSum += trip;
+                maxTrip = Math.max(maxTrip, trip);
+                undelivered--;
+            } else {
+                riding[ridingCount++] = request;
+            }
+        }
+        riderCounts[elevator] = ridingCount;
+
+        int[] assigned = pickups[elevator];
+        int assignedCount = 0;
+        for (int i = 0; i < pickupCounts[elevator]; i++) {
+            int request = assigned[i];
+            if (fromFloors[request] == floor) {
+                removeStop(elevator, floor);
+                addStop(elevator, toFloors[request]);
+                recordWait((int) (tick - requestTicks[request]));
+                riders[elevator] = append(riders[elevator], riderCounts[elevator]++, request);
+            } else {
+                assigned[assignedCount++] = request;
+            }
+        }
+        pickupCounts[elevator] = assignedCount;
+
+        int direction = directions[elevator];
+        if (stopCounts[elevator] == 0) {
+            directions[elevator] = 0;
+        } else if (direction == 0 || !hasStopAhead(elevator, floor, direction)) {
+            directions[elevator] = hasStopAhead(elevator, floor, 1) ? 1 : -1;
+        }
+    }
+
+    private boolean hasStopAhead(int elevator, int floor, int direction) {
+        int base = elevator * (floors + 1);
+        for (int f = floor + direction; f >= 1 && f <= floors; f += direction) {
+            if (stops[base + f] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addStop(int elevator, int floor) {
+        stops[elevator * (floors + 1) + floor]++;
+        stopCounts[elevator]++;
+    }
+
+    private void removeStop(int elevator, int floor) {
+        stops[elevator * (floors + 1) + floor]--;
+        stopCounts[elevator]--;
+    }
+
+    private void recordWait(int wait) {
+        waitSum += wait;
+        maxWait = Math.max(maxWait, wait);
+        if (wait >= waitHistogram.length) {
+            waitHistogram = Arrays.copyOf(waitHistogram, Math.max(wait + 1, waitHistogram.length * 2));
+        }
+        waitHistogram[wait]++;
+    }
+
+    private int waitPercentile(double percentile) {
+        long rank = (long) Math.ceil(requestCount * percentile);
+        long seen = 0;
+        for (int wait = 0; wait <= maxWait; wait++) {
+            seen += waitHistogram[wait];
+            if (seen >= rank) {
+                return wait;
+            }
+        }
+        return maxWait;
+    }
+
+    private static int[] append(int[] values, int size, int value) {
+        int[] target = size == values.length ? Arrays.copyOf(values, size * 2) : values;
+        target[size] = value;
+        return target;
+    }
+
+    private static double mean(long sum, long count) {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+}
@@ -0,0 +1,20 @@
+package org.base.scenario.replay;
+
+/**
+ * Outcome of replaying a scenario, see {@link ElevatorReplay}. Times are in ticks, one tick per record of the scenario.
+ *
+ * @param ticks          ticks until the last request was delivered.
+ * @param waitP95        95th percentile of the ticks between a request and its pickup.
+ * @param meanQueueDepth requests that no elevator could take yet, averaged over every tick.
+ */
+public record ReplayReport(int elevators, long requests, long ticks,
+                           double meanWait, int waitP95, int maxWait,
+                           double meanTrip, int maxTrip,
+                           double meanQueueDepth, int maxQueueDepth) {
+
+    @Override
+    public String toString() {
+        return String.format("%d requests on %d elevators in %d ticks, wait mean %.1f p95 %d max %d, trip mean %.1f max %d, queue mean %.1f max %d",
+                requests, elevators, ticks, meanWait, waitP95, maxWait, meanTrip, maxTrip, meanQueueDepth, maxQueueDepth);
+    }
+}
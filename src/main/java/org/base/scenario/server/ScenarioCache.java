@@ -0,0 +1,55 @@
+package org.base.scenario.server;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache of encoded scenarios, bounded by the total number of bytes it holds.
+ */
+class ScenarioCache {
+    private final long maxBytes;
+    private final LinkedHashMap<ScenarioKey, byte[]> entries = new LinkedHashMap<>(16, .75f, true);
+    private long bytes;
+
+    ScenarioCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    long getMaxBytes() {
+        return maxBytes;
+    }
+
+    synchronized byte[] get(ScenarioKey key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Adds a scenario, evicting the least recently used ones until it fits. Scenarios larger than the cache are not
+     * kept.
+     */
+    synchronized void put(ScenarioKey key, byte[] scenario) {
+        if (scenario.length > maxBytes) {
+            return;
+        }
+        byte[] previous = entries.put(key, scenario);
+        if (previous != null) {
+            bytes -= previous.length;
+        }
+        bytes += scenario.length;
+        Iterator<Map.Entry<ScenarioKey, byte[]>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes) {
+            byte[] evicted = eldest.next().getValue();
+            eldest.remove();
+            bytes -= evicted.length;
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long getBytes() {
+        return bytes;
+    }
+}
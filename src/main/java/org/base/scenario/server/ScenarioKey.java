@@ -0,0 +1,23 @@
+package org.base.scenario.server;
+
+import org.base.scenario.io.ScenarioFormat;
+import org.base.scenario.model.Constraints;
+import org.base.scenario.model.FloorDistribution;
+
+/**
+ * Identifies a served scenario: every constraint the generator reads, the seed and the format.
+ * A constraint that changes the generated requests must be added here, or requests that differ only in that
+ * constraint share a cache entry.
+ */
+record ScenarioKey(int numberOfFloors, int numberOfRoomsPerFloor, int maxOccupantsPerRoom,
+                   int checkinStartTime, int checkinEndTime, int checkoutStartTime, int checkoutEndTime,
+                   FloorDistribution checkinDestinations, FloorDistribution leaveDestinations,
+                   long seed, ScenarioFormat format) {
+
+    static ScenarioKey of(Constraints constraints, long seed, ScenarioFormat format) {
+        return new ScenarioKey(constraints.getNumberOfFloors(), constraints.getNumberOfRoomsPerFloor(),
+                constraints.getMaxOccupantsPerRoom(), constraints.getCheckinStartTime(), constraints.getCheckinEndTime(),
+                constraints.getCheckoutStartTime(), constraints.getCheckoutEndTime(),
+                constraints.getCheckinDestinations(), constraints.getLeaveDestinations(), seed, format);
+    }
+}
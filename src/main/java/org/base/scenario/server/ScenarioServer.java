@@ -0,0 +1,231 @@
+package org.base.scenario.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.base.scenario.diagnostics.Diagnostics;
+import org.base.scenario.diagnostics.DiagnosticsMode;
+import org.base.scenario.io.ScenarioFormat;
+import org.base.scenario.io.ScenarioWriter;
+import org.base.scenario.model.Constraints;
+import org.base.scenario.service.ScenarioService;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves scenarios over HTTP, so a simulator fleet can request them from a long-running process instead of paying
+ * the application startup for every scenario.
+ * <p>
+ * {@code GET /scenario?seed=42&format=binary&number-of-floors=20} generates a scenario with the given constraints
+ * overriding the configured ones, and streams it back while it is generated. Encoded scenarios are kept in a
+ * {@link ScenarioCache} keyed by the constraints, seed and format, repeated requests are answered from memory.
+ * <p>
+ * The server uses the JDK's built-in HTTP server, so the batch mode does not start a servlet container.
+ */
+@Service
+public class ScenarioServer implements AutoCloseable {
+    // Constraints a request may override, the ones that make up a ScenarioKey.
+    private static final Set<String> OVERRIDES = Set.of("number-of-floors", "number-of-rooms-per-floor",
+            "max-occupants-per-room", "checkin-start-time", "checkin-end-time", "checkout-start-time",
+            "checkout-end-time", "checkin-destinations", "leave-destinations");
+    // Responses are flushed to the client every chunk.
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final Constraints constraints;
+    private final Diagnostics diagnostics;
+    private final ScenarioCache cache;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public ScenarioServer(@Autowired Constraints constraints, @Autowired Diagnostics diagnostics) {
+        this.constraints = constraints;
+        this.diagnostics = diagnostics;
+        this.cache = new ScenarioCache(constraints.getServerCacheBytes());
+    }
+
+    /**
+     * Starts serving on {@code constraints.server-port}, the server keeps the JVM running until it is closed.
+     */
+    public synchronized void start() {
+        try {
+            server = HttpServer.create(new InetSocketAddress(constraints.getServerPort()), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to listen on port " + constraints.getServerPort(), e);
+        }
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        server.setExecutor(executor);
+        server.createContext("/scenario", this::handle);
+        server.start();
+        System.out.println("Serving scenarios on port " + server.getAddress().getPort());
+    }
+
+    /**
+     * @return the port the server listens on, useful when it was started on port 0.
+     */
+    public synchronized int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Only GET is supported");
+                return;
+            }
+            ScenarioRequest request;
+            try {
+                request = parse(exchange.getRequestURI().getRawQuery());
+            } catch (RuntimeException e) {
+                sendError(exchange, 400, e.getMessage());
+                return;
+            }
+
+            ScenarioKey key = ScenarioKey.of(request.constraints(), request.seed(), request.format());
+            exchange.getResponseHeaders().set("Content-Type", request.format() == ScenarioFormat.TEXT ? "text/plain; charset=utf-8" : "application/octet-stream");
+            exchange.getResponseHeaders().set("X-Scenario-Seed", Long.toString(request.seed()));
+            byte[] cached = cache.get(key);
+            if (cached != null) {
+                exchange.getResponseHeaders().set("X-Cache", "HIT");
+                exchange.sendResponseHeaders(200, cached.length);
+                exchange.getResponseBody().write(cached);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("X-Cache", "MISS");
+            exchange.sendResponseHeaders(200, 0);
+            CachingChannel channel = new CachingChannel(exchange.getResponseBody(), cache.getMaxBytes());
+            try (ScenarioWriter writer = ScenarioWriter.create(channel, request.format(), CHUNK_SIZE)) {
+                new ScenarioService(request.constraints(), diagnostics).writeScenario(writer, request.seed());
+            } catch (RuntimeException e) {
+                // The response is cut short, which tells the client it is incomplete. It is not cached.
+                diagnostics.log(DiagnosticsMode.SUMMARY, "Scenario " + request.seed() + " was not sent: " + e.getMessage());
+                return;
+            }
+            byte[] bytes = channel.getBytes();
+            if (bytes != null) {
+                cache.put(key, bytes);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Reads the seed, format and constraint overrides of a request.
+     */
+    ScenarioRequest parse(String query) {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        if (query != null && !query.isEmpty()) {
+            for (String parameter : query.split("&")) {
+                int separator = parameter.indexOf('=');
+                String name = URLDecoder.decode(separator < 0 ? parameter : parameter.substring(0, separator), StandardCharsets.UTF_8);
+                String value = separator < 0 ? "" : URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8);
+                parameters.put(name, value);
+            }
+        }
+
+        long seed = parameters.containsKey("seed") ? Long.parseLong(parameters.remove("seed")) : System.nanoTime();
+        ScenarioFormat format = parameters.containsKey("format")
+                ? ScenarioFormat.valueOf(parameters.remove("format").toUpperCase(Locale.ROOT))
+                : constraints.getOutputFormat();
+
+        Constraints requestConstraints = new Constraints();
+        BeanUtils.copyProperties(constraints, requestConstraints);
+        MapConfigurationPropertySource overrides = new MapConfigurationPropertySource();
+        for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+            if (!OVERRIDES.contains(parameter.getKey())) {
+                throw new IllegalArgumentException("Unknown parameter " + parameter.getKey() + ", expected seed, format or one of " + OVERRIDES);
+            }
+            overrides.put("constraints." + parameter.getKey(), parameter.getValue());
+        }
+        new Binder(overrides).bind("constraints", Bindable.ofInstance(requestConstraints));
+        ScenarioService.validate(requestConstraints);
+        return new ScenarioRequest(requestConstraints, seed, format);
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = (message + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    record ScenarioRequest(Constraints constraints, long seed, ScenarioFormat format) {
+    }
+
+    /**
+     * Writes to the response and keeps a copy for the cache, until the copy grows larger than the cache.
+     */
+    private static final class CachingChannel implements WritableByteChannel {
+        private final OutputStream out;
+        private final WritableByteChannel channel;
+        private final long maxBytes;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        CachingChannel(OutputStream out, long maxBytes) {
+            this.out = out;
+            this.channel = Channels.newChannel(out);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (copy != null) {
+                if (copy.size() + src.remaining() > maxBytes) {
+                    copy = null;
+                } else {
+                    ByteBuffer duplicate = src.duplicate();
+                    byte[] chunk = new byte[duplicate.remaining()];
+                    duplicate.get(chunk);
+                    copy.write(chunk);
+                }
+            }
+            int written = channel.write(src);
+            out.flush();
+            return written;
+        }
+
+        byte[] getBytes() {
+            return copy == null ? null : copy.toByteArray();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.base.scenario.service;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Draws indexes in proportion to fixed weights in constant time, with Vose's alias method.
+ * <p>
+ * Every column of the table holds one index with its probability and an alias that takes the rest of the column, so
+ * a draw is one random column and one random threshold. Indexes with a weight of 0 get no column and are never
+ * drawn. Drawing does not allocate, and the table can be shared between threads.
+ */
+class AliasTable {
+    private final int[] values;
+    private final int[] aliases;
+    private final double[] probabilities;
+
+    /**
+     * @param weights the relative weight of every index, none may be negative.
+     */
+    AliasTable(double[] weights) {
+        int columns = 0;
+        double total = 0;
+        for (double weight : weights) {
+            if (weight < 0 || Double.isNaN(weight)) {
+                throw new IllegalArgumentException("Weights cannot be negative: " + weight);
+            }
+            if (weight > 0) {
+                columns++;
+                total += weight;
+            }
+        }
+        if (columns == 0) {
+            throw new IllegalArgumentException("At least one weight must be positive");
+        }
+
+        values = new int[columns];
+        aliases = new int[columns];
+        probabilities = new double[columns];
+        double[] scaled = new double[columns];
+        for (int index = 0, column = 0; index < weights.length; index++) {
+            if (weights[index] > 0) {
+                values[column] = index;
+                scaled[column] = weights[index] * columns / total;
+                column++;
+            }
+        }
+
+        // Columns below and above the average, used as two stacks.
+        int[] small = new int[columns];
+        int[] large = new int[columns];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int column = 0; column < columns; column++) {
+            if (scaled[column] < 1) {
+                small[smallCount++] = column;
+            } else {
+                large[largeCount++] = column;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            probabilities[less] = scaled[less];
+            aliases[less] = more;
+            scaled[more] += scaled[less] - 1;
+            if (scaled[more] < 1) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        // What is left is 1 up to rounding errors.
+        while (largeCount > 0) {
+            probabilities[large[--largeCount]] = 1;
+        }
+        while (smallCount > 0) {
+            probabilities[small[--smallCount]] = 1;
+        }
+    }
+
+    int next(RandomGenerator rand) {
+        int column = rand.nextInt(values.length);
+        return values[rand.nextDouble() < probabilities[column] ? column : aliases[column]];
+    }
+}
@@ -0,0 +1,77 @@
+package org.base.scenario.service;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Draws the check-in destinations of one scenario from an {@link AliasTable}, without sending more check-ins to a floor
+ * than it can take.
+ * <p>
+ * Each floor starts with a capacity. When a draw fills a floor, its weight is dropped and the table is built again
+ * from the floors that still have room, which happens at most once per floor. Draws in between stay constant time.
+ * With capacities that add up to the number of check-ins, every floor receives exactly its capacity.
+ */
+class CheckinDestinations {
+    private final double[] weights;
+    private final long[] remaining;
+    private AliasTable table;
+
+    /**
+     * @param weights  the relative weight of every floor, indexed by floor number.
+     * @param capacity the number of check-ins each floor can take, indexed by floor number.
+     */
+    CheckinDestinations(double[] weights, long[] capacity) {
+        this.weights = weights.clone();
+        this.remaining = capacity.clone();
+        for (int floor = 0; floor < this.weights.length; floor++) {
+            if (floor >= remaining.length || remaining[floor] <= 0) {
+                this.weights[floor] = 0;
+            }
+        }
+        this.table = build();
+    }
+
+    /**
+     * @throws IllegalStateException if every floor is full.
+     */
+    int next(RandomGenerator rand) {
+        if (table == null) {
+            throw new IllegalStateException("Every floor has as many check-ins as it can take");
+        }
+        int floor = table.next(rand);
+        if (--remaining[floor] == 0) {
+            weights[floor] = 0;
+            table = build();
+        }
+        return floor;
+    }
+
+    /**
+     * @return the number of check-ins the floor can still take.
+     */
+    long getRemaining(int floor) {
+        return floor < remaining.length ? remaining[floor] : 0;
+    }
+
+    /**
+     * Falls back to the floors with room when none of them has any weight left, or to null when every floor is full.
+     */
+    private AliasTable build() {
+        boolean weighted = false;
+        boolean room = false;
+        for (int floor = 0; floor < weights.length; floor++) {
+            weighted |= weights[floor] > 0;
+            room |= floor < remaining.length && remaining[floor] > 0;
+        }
+        if (weighted) {
+            return new AliasTable(weights);
+        }
+        if (!room) {
+            return null;
+        }
+        double[] fallback = new double[weights.length];
+        for (int floor = 0; floor < fallback.length && floor < remaining.length; floor++) {
+            fallback[floor] = remaining[floor] > 0 ? 1 : 0;
+        }
+        return new AliasTable(fallback);
+    }
+}
@@ -0,0 +1,219 @@
+package org.base.scenario.service;
+
+import org.base.scenario.model.Building;
+import org.base.scenario.model.BuildingLayout;
+import org.base.scenario.model.Constraints;
+import org.base.scenario.model.OccupantTable;
+import org.base.scenario.model.PickupRequests;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+import java.util.random.RandomGenerator;
+
+/**
+ * State of a single scenario while it is generated, so one {@link ScenarioService} can generate many scenarios
+ * concurrently.
+ */
+class ScenarioContext {
+    // The whole building, or its floor ranges in ascending order when it is split into shards.
+    private final List<Building> shards;
+    // The occupants of each shard as booked during check-in, by the room numbers of its building. The leave and checkout
+    // stages move them around on a copy each, so they can run concurrently.
+    private final List<OccupantTable> occupants;
+    private final long seed;
+    private final SplittableRandom random;
+    private final Set<Integer> timeSlices; // This is a hack to process request in order regardless of time value.
+    private final PickupRequests pickupRequests;
+    // Return requests, scheduled in the time slice they happen in.
+    private final TimingWheel returns;
+    private int checkinTimeSliceCount;
+    // Occupants per room of the check-ins in each time slice.
+    private int[] partySizes = new int[0];
+
+    ScenarioContext(Constraints constraints, long seed) {
+        this(constraints, seed, createShards(constraints));
+    }
+
+    /**
+     * @param shards empty buildings for {@link #shardLayouts(Constraints)}, the context fills them.
+     */
+    ScenarioContext(Constraints constraints, long seed, List<Building> shards) {
+        this.shards = shards;
+        this.occupants = shards.stream().map(shard -> new OccupantTable()).toList();
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+        this.timeSlices = new HashSet<>();
+        this.pickupRequests = new PickupRequests();
+        this.returns = new TimingWheel();
+        reserve(constraints);
+    }
+
+    private ScenarioContext(ScenarioContext other, Constraints constraints) {
+        this.shards = other.shards.stream().map(Building::copy).toList();
+        this.occupants = other.occupants.stream().map(OccupantTable::copy).toList();
+        this.seed = other.seed;
+        this.random = new SplittableRandom(seed);
+        this.timeSlices = new HashSet<>(other.timeSlices);
+        this.pickupRequests = other.pickupRequests.copy();
+        this.returns = other.returns.copy();
+        this.checkinTimeSliceCount = other.checkinTimeSliceCount;
+        this.partySizes = other.partySizes.clone();
+        reserve(constraints);
+    }
+
+    /**
+     * Copies the scenario so far for the rest of the pipeline to run on with other constraints. The copy hands out
+     * the random streams from the start of the seed again, so a pipeline run on it gets the same streams per stage.
+     */
+    ScenarioContext copy(Constraints constraints) {
+        return new ScenarioContext(this, constraints);
+    }
+
+    private void reserve(Constraints constraints) {
+        // Returns can land in any time slice before the check-in end time. Reserving every time slice up front lets
+        // stages that write to different time slices run concurrently.
+        int hours = constraints.getCheckinEndTime() - constraints.getCheckinStartTime() + 1 +
+                    constraints.getCheckoutEndTime() - constraints.getCheckoutStartTime() + 1;
+        pickupRequests.reserve(Math.max(hours, constraints.getCheckinEndTime()));
+    }
+
+    /**
+     * Creates empty buildings for the shards, in parallel when there is more than one.
+     */
+    static List<Building> createShards(Constraints constraints) {
+        List<BuildingLayout> layouts = shardLayouts(constraints);
+        if (layouts.size() == 1) {
+            return List.of(new Building(layouts.get(0)));
+        }
+        return layouts.parallelStream()
+                .map(Building::new)
+                .toList();
+    }
+
+    /**
+     * Splits the floors into {@code constraints.building-shards} ranges of about the same size, at most one per floor.
+     * @return the cached layouts of the ranges, in floor order.
+     */
+    static List<BuildingLayout> shardLayouts(Constraints constraints) {
+        int floors = constraints.getNumberOfFloors();
+        int shardCount = Math.min(constraints.getBuildingShards(), floors);
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Building shards must be at least 1: " + constraints.getBuildingShards());
+        }
+        if (shardCount == 1) {
+            return List.of(BuildingLayout.of(constraints));
+        }
+        return IntStream.range(0, shardCount)
+                .mapToObj(shard -> BuildingLayout.of(constraints, 1 + (int) ((long) shard * floors / shardCount), (int) ((long) (shard + 1) * floors / shardCount)))
+                .toList();
+    }
+
+    /**
+     * @throws IllegalStateException if the building is split into shards.
+     */
+    Building getBuilding() {
+        if (shards.size() != 1) {
+            throw new IllegalStateException("The building is split into " + shards.size() + " shards");
+        }
+        return shards.get(0);
+    }
+
+    List<Building> getShards() {
+        return shards;
+    }
+
+    /**
+     * @throws IllegalStateException if the building is split into shards.
+     */
+    OccupantTable getOccupants() {
+        if (occupants.size() != 1) {
+            throw new IllegalStateException("The building is split into " + occupants.size() + " shards");
+        }
+        return occupants.get(0);
+    }
+
+    /**
+     * @return the occupants of each shard, in shard order.
+     */
+    List<OccupantTable> getShardOccupants() {
+        return occupants;
+    }
+
+    /**
+     * @return the index of the shard the floor belongs to.
+     */
+    int getShard(int floor) {
+        int low = 0;
+        int high = shards.size() - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (shards.get(middle).getLastFloor() < floor) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    PickupRequests getPickupRequests() {
+        return pickupRequests;
+    }
+
+    TimingWheel getReturns() {
+        return returns;
+    }
+
+    /**
+     * @return an independent random stream for the next pipeline step. Steps must ask in a fixed order, which keeps
+     * a scenario reproducible from its seed.
+     */
+    RandomGenerator nextRandom() {
+        return random.split();
+    }
+
+    /**
+     * Registers the hour as a time slice.
+     * @return the number of time slices so far, which is the index of the hour's time slice when it is new.
+     */
+    int addTimeSlice(int hour) {
+        timeSlices.add(hour);
+        return timeSlices.size();
+    }
+
+    int getTimeSliceCount() {
+        return timeSlices.size();
+    }
+
+    void setPartySize(int timeSlice, int occupants) {
+        if (timeSlice >= partySizes.length) {
+            partySizes = Arrays.copyOf(partySizes, Math.max(partySizes.length * 2, timeSlice + 1));
+        }
+        partySizes[timeSlice] = occupants;
+    }
+
+    /**
+     * @return the number of occupants in each room checked into during the time slice.
+     */
+    int getPartySize(int timeSlice) {
+        return partySizes[timeSlice];
+    }
+
+    /**
+     * Marks the time slices registered so far as the check-in time slices.
+     */
+    void endCheckins() {
+        checkinTimeSliceCount = timeSlices.size();
+    }
+
+    /**
+     * @return the last check-in time slice, check-in time slices start at 1.
+     */
+    int getLastCheckinTimeSlice() {
+        return checkinTimeSliceCount;
+    }
+}
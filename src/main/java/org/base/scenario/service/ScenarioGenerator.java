@@ -0,0 +1,210 @@
+package org.base.scenario.service;
+
+import org.base.scenario.model.*;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Produces a scenario one time slice at a time instead of building every time slice in memory first.
+ * <p>
+ * Check-in, leave, return and checkout requests follow the same {@link TrafficPlan} as
+ * {@link ScenarioService#createScenario()}. Only the requests of the current time slice, the leave requests of the next
+ * time slice and the occupants that are still away are held at any time, the deferred ones in a {@link TimingWheel}
+ * each.
+ * <p>
+ * Padding needs the size of the largest time slice up front, which the in-memory pipeline measures on the whole
+ * scenario. It is passed in instead, typically from a previous pass with the same seed, see
+ * {@link ScenarioService#writeScenario}.
+ * The returned {@link TimeSliceRequests} is reused, it is only valid until the next call to {@link #next()}.
+ */
+public class ScenarioGenerator implements Iterator<TimeSliceRequests> {
+    private final Constraints constraints;
+    private final TrafficPlan trafficPlan;
+    private final Building building;
+    private final RandomGenerator rand;
+    private final RandomGenerator paddingRand;
+    private final int sliceSize;
+    private final CheckinDestinations checkinDestinations;
+
+    private final TimeSliceRequests requests = new TimeSliceRequests();
+    private final TimingWheel leaves = new TimingWheel();
+    private final TimingWheel returns = new TimingWheel();
+    private final OccupantTable occupants = new OccupantTable();
+    // Occupants that are away, by the time slice they are back in.
+    private final TimingWheel awayOccupants = new TimingWheel();
+
+    private int timeSlice;
+    private int checkinHour;
+    private boolean checkinsDone;
+    private int checkoutStart = -1;
+    private int checkoutHour;
+    private int occupiedRooms;
+    private boolean ready;
+
+    /**
+     * @param seed      seeds every random choice, generators with the same constraints and seed produce the same
+     *                  requests.
+     * @param sliceSize the number of requests each time slice is padded to, or 0 to skip padding.
+     */
+    public ScenarioGenerator(Constraints constraints, long seed, int sliceSize) {
+        this(constraints, seed, sliceSize, new Building(constraints));
+    }
+
+    /**
+     * @param building the whole building for the constraints, it is emptied first.
+     */
+    ScenarioGenerator(Constraints constraints, long seed, int sliceSize, Building building) {
+        building.reset();
+        this.constraints = constraints;
+        this.trafficPlan = new TrafficPlan(constraints);
+        this.building = building;
+        SplittableRandom random = new SplittableRandom(seed);
+        this.rand = random.split();
+        this.paddingRand = random.split();
+        this.sliceSize = sliceSize;
+        this.checkinDestinations = trafficPlan.checkinDestinations();
+        this.checkinHour = constraints.getCheckinStartTime();
+        this.checkoutHour = constraints.getCheckoutStartTime();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!ready) {
+            ready = produce();
+        }
+        return ready;
+    }
+
+    @Override
+    public TimeSliceRequests next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ready = false;
+        return requests;
+    }
+
+    private boolean produce() {
+        while (!isDone()) {
+            timeSlice++;
+            requests.reset(timeSlice);
+            while (awayOccupants.getCurrentTimeSlice() <= timeSlice) {
+                ScenarioService.returnToRooms(occupants, awayOccupants, (returnTime, currentFloor, destinationFloor) ->
+                        returns.schedule(returnTime, PickupRequests.pack(currentFloor, destinationFloor)));
+            }
+            int checkins = addCheckinRequests();
+            if (checkins > 0) {
+                scheduleLeaveRequests(checkins);
+            }
+            addLeaveRequests();
+            addReturnRequests();
+            addCheckoutRequests();
+            if (requests.size() > 0) {
+                pad();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isDone() {
+        return checkinsDone && checkoutHour > constraints.getCheckoutEndTime() && leaves.isEmpty() && awayOccupants.isEmpty()
+               && returns.isEmpty();
+    }
+
+    private int addCheckinRequests() {
+        if (checkinsDone) {
+            return 0;
+        }
+        int hour = checkinHour++;
+        int partySize = trafficPlan.partySize(rand);
+        int checkins = 0;
+        if (!building.hasFreeRoom()) {
+            checkinsDone = true;
+        } else {
+            int scheduled = trafficPlan.checkinsAt(hour);
+            for (Room room; checkins < scheduled && (room = building.checkIn(partySize)) != null; checkins++) {
+                int destinationFloor = checkinDestinations.next(rand);
+                MoveRequest.validate(1, destinationFloor);
+                requests.add(1, destinationFloor);
+                occupants.checkIn(room.getRoomNumber(), destinationFloor, partySize);
+            }
+            checkinsDone = hour >= constraints.getCheckinEndTime();
+        }
+        if (checkinsDone) {
+            checkoutStart = timeSlice + 1;
+        }
+        return checkins;
+    }
+
+    /**
+     * Some occupants that are in their room leave during the next time slice, if it has check-ins as well. How many
+     * follows the number of check-ins in this time slice.
+     */
+    private void scheduleLeaveRequests(int checkins) {
+        int portionOfOccupants = trafficPlan.leavePercentage(rand);
+        if (!hasCheckinsNext()) {
+            return;
+        }
+        int numberOfUpdates = (int) Math.round(checkins * portionOfOccupants * .01);
+        for (int j = 0; j < numberOfUpdates && occupants.getPresentCount() > 0; j++) {
+            int occupant = occupants.getRandomPresentOccupant(rand);
+            int leaveFloor = occupants.getLocation(occupant);
+            int destFloor = trafficPlan.leaveDestination(leaveFloor, rand);
+            int returnTime = trafficPlan.returnTime(timeSlice + 2, rand);
+            occupants.leave(occupant, destFloor);
+            awayOccupants.schedule(returnTime, occupant);
+
+            MoveRequest.validate(leaveFloor, destFloor);
+            leaves.schedule(timeSlice + 1, PickupRequests.pack(leaveFloor, destFloor));
+        }
+    }
+
+    private boolean hasCheckinsNext() {
+        return !checkinsDone && trafficPlan.checkinsAt(checkinHour) > 0 && building.hasFreeRoom();
+    }
+
+    private void addLeaveRequests() {
+        int start = requests.size();
+        leaves.drain(timeSlice, requests::add);
+        requests.scatter(start, rand);
+    }
+
+    private void addReturnRequests() {
+        returns.drain(timeSlice, requests::add);
+    }
+
+    private void addCheckoutRequests() {
+        if (checkoutStart < 0 || timeSlice < checkoutStart || checkoutHour > constraints.getCheckoutEndTime()) {
+            return;
+        }
+        if (checkoutStart == timeSlice) {
+            occupiedRooms = building.getOccupiedRoomCount();
+        }
+        int checkouts = trafficPlan.checkoutsAt(checkoutHour++, occupiedRooms);
+        for (int j = 0; j < checkouts && building.getOccupiedRoomCount() > 0; j++) {
+            // The party checks out from the floor it checked into.
+            Room room = building.getRandomOccupiedRoom(rand);
+            int floor = occupants.checkOut(room.getRoomNumber());
+            building.checkOut(room);
+            MoveRequest.validate(floor, 1);
+            requests.add(floor, 1);
+        }
+    }
+
+    private void pad() {
+        if (sliceSize == 0) {
+            return;
+        }
+        int difference = sliceSize - requests.size();
+        if (difference < 0) {
+            throw new IllegalStateException("Time slice " + timeSlice + " has " + requests.size() + " requests, more than the slice size " + sliceSize);
+        }
+        int start = requests.size();
+        requests.fill(PickupRequests.pack(0, 0), difference);
+        requests.scatter(start, paddingRand);
+    }
+}
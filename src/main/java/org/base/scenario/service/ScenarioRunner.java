@@ -0,0 +1,171 @@
+package org.base.scenario.service;
+
+import org.base.scenario.diagnostics.Diagnostics;
+import org.base.scenario.diagnostics.DiagnosticsMode;
+import org.base.scenario.io.ScenarioFormat;
+import org.base.scenario.io.ScenarioWriter;
+import org.base.scenario.io.SliceIndex;
+import org.base.scenario.metrics.GenerationMetrics;
+import org.base.scenario.metrics.StageTimer;
+import org.base.scenario.model.Constraints;
+import org.base.scenario.model.Scenario;
+import org.base.scenario.replay.ElevatorReplay;
+import org.base.scenario.replay.ReplayReport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Generates and writes the scenarios of a run.
+ * Every scenario gets its own seed split from the master seed, so scenarios can be generated in parallel and a run
+ * with the same master seed writes byte-identical files.
+ */
+@Service
+public class ScenarioRunner {
+
+    private final Constraints constraints;
+    private final ScenarioService scenarioService;
+    private final Diagnostics diagnostics;
+
+    public ScenarioRunner(@Autowired Constraints constraints, @Autowired ScenarioService scenarioService, @Autowired Diagnostics diagnostics) {
+        this.constraints = constraints;
+        this.scenarioService = scenarioService;
+        this.diagnostics = diagnostics;
+    }
+
+    public void run() {
+        long masterSeed = constraints.getSeed() != null ? constraints.getSeed() : System.currentTimeMillis();
+        int count = constraints.getScenarioCount();
+        if (count < 1) {
+            throw new IllegalArgumentException("Scenario count must be at least 1: " + count);
+        }
+        if (constraints.getExportChunks() < 1) {
+            throw new IllegalArgumentException("Export chunks must be at least 1: " + constraints.getExportChunks());
+        }
+        if (constraints.getExportChunks() > 1 && (constraints.isStreaming() || constraints.isSliceIndex())) {
+            throw new IllegalArgumentException("Chunked exports need the in-memory generator and no slice index");
+        }
+        if (!constraints.getSweep().isEmpty()) {
+            new ScenarioSweep(constraints, diagnostics).run(scenarioSeeds(masterSeed, 1)[0]);
+            diagnostics.flush();
+            return;
+        }
+        System.out.println("Generating " + count + " scenario(s) with seed " + masterSeed);
+
+        long[] seeds = scenarioSeeds(masterSeed, count);
+        List<Outcome> outcomes = IntStream.range(0, count)
+                .parallel()
+                .mapToObj(i -> generate(outputPath(i, count), seeds[i]))
+                .toList();
+
+        diagnostics.flush();
+        if (constraints.getReplayElevators() > 0) {
+            System.out.println("Kept " + outcomes.stream().filter(Outcome::kept).count() + " of " + count + " scenario(s)");
+        }
+        if (constraints.isMetrics()) {
+            List<GenerationMetrics> metrics = outcomes.stream().map(Outcome::metrics).toList();
+            GenerationMetrics summary = count == 1 ? metrics.get(0) : GenerationMetrics.aggregate(count + " scenarios", metrics);
+            System.out.print(summary.toSummary());
+        }
+    }
+
+    /**
+     * Derives one seed per scenario. The seeds depend only on the master seed and the position of the scenario, not
+     * on which thread generates it.
+     */
+    static long[] scenarioSeeds(long masterSeed, int count) {
+        SplittableRandom master = new SplittableRandom(masterSeed);
+        long[] seeds = new long[count];
+        for (int i = 0; i < count; i++) {
+            seeds[i] = master.split().nextLong();
+        }
+        return seeds;
+    }
+
+    Path outputPath(int index, int count) {
+        String extension = constraints.getOutputFormat().getExtension();
+        if (count == 1) {
+            return Path.of(constraints.getOutputName() + extension);
+        }
+        int width = String.valueOf(count).length();
+        return Path.of(String.format("%s-%0" + width + "d%s", constraints.getOutputName(), index + 1, extension));
+    }
+
+    private record Outcome(GenerationMetrics metrics, boolean kept) {
+    }
+
+    /**
+     * Generates a scenario and writes it unless its replay scores below {@code constraints.replay-min-mean-wait}.
+     */
+    private Outcome generate(Path path, long seed) {
+        GenerationMetrics metrics = constraints.isMetrics() ? new GenerationMetrics(path.toString(), seed) : GenerationMetrics.disabled();
+        ScenarioFormat format = constraints.getOutputFormat();
+        ElevatorReplay replay = constraints.getReplayElevators() > 0
+                ? new ElevatorReplay(constraints.getNumberOfFloors(), constraints.getReplayElevators())
+                : null;
+        ReplayReport report = null;
+        boolean kept = true;
+        if (constraints.isStreaming()) {
+            // The replay follows the writer, a rejected scenario is deleted once it has been written.
+            try (ScenarioWriter writer = ScenarioWriter.open(path, format, constraints.isSliceIndex())) {
+                scenarioService.writeScenario(writer, seed, metrics, replay);
+            }
+            if (replay != null) {
+                report = replay.finish();
+                kept = keep(report);
+                if (!kept) {
+                    delete(path);
+                    delete(SliceIndex.pathFor(path));
+                }
+            }
+        } else {
+            Scenario scenario = scenarioService.createScenario(seed, metrics);
+            long requests = scenario.getPickupRequests().getRequestCount();
+            if (replay != null) {
+                StageTimer timer = metrics.start("replay", requests);
+                scenario.getPickupRequests().forEach(replay);
+                report = replay.finish();
+                timer.stop(requests);
+                kept = keep(report);
+            }
+            if (kept) {
+                StageTimer timer = metrics.start("export", requests);
+                if (constraints.getExportChunks() > 1) {
+                    scenario.exportPickupRequests(path, format, constraints.getExportChunks(), constraints.isExportPartFiles());
+                } else {
+                    scenario.generatePickupRequests(path, format, constraints.isSliceIndex());
+                }
+                timer.stop(requests);
+            }
+        }
+        if (report != null) {
+            diagnostics.log(DiagnosticsMode.SUMMARY, path + (kept ? "" : " (not kept)") + ": " + report);
+        }
+
+        if (kept && constraints.isMetrics() && constraints.isMetricsJson()) {
+            String fileName = path.getFileName().toString();
+            String baseName = fileName.substring(0, fileName.length() - format.getExtension().length());
+            metrics.writeJson(path.resolveSibling(baseName + ".metrics.json"));
+        }
+        return new Outcome(metrics, kept);
+    }
+
+    private boolean keep(ReplayReport report) {
+        return report.meanWait() >= constraints.getReplayMinMeanWait();
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to delete " + path, e);
+        }
+    }
+}
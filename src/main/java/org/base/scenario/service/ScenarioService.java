@@ -1,118 +1,244 @@
 package org.base.scenario.service;
 
+import org.base.scenario.diagnostics.Diagnostics;
+import org.base.scenario.io.PickupRequestConsumer;
+import org.base.scenario.io.ScenarioWriter;
+import org.base.scenario.metrics.GenerationMetrics;
+import org.base.scenario.metrics.StageTimer;
 import org.base.scenario.model.*;
+import org.jetbrains.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.random.RandomGenerator;
+
+import static org.base.scenario.service.StageResource.*;
 
 @Service
 public class ScenarioService {
+    // Stages that add requests to the check-in time slices, reorder them or depend on the drawn floors. The destinations
+    // stage tells check-ins apart by their lobby origin and their order, so it has to run before these.
+    private static final Set<String> AFTER_DESTINATIONS = Set.of("leave", "checkout", "return", "normalize");
 
     private final Constraints constraints;
-    private final Building building;
-    private final Set<Integer> timeSlices = new HashSet<>(); // This is a hack to process request in order regardless of time value.
+    private final TrafficPlan trafficPlan;
+    private final Diagnostics diagnostics;
+    private final Map<String, ScenarioStage> stages = new LinkedHashMap<>();
+    // Buildings of finished scenarios, reused by later scenarios as long as the building keeps its shape.
+    private final Queue<List<Building>> idleBuildings = new ConcurrentLinkedQueue<>();
+
+    public ScenarioService(Constraints constraints) {
+        this(constraints, new Diagnostics(constraints));
+    }
 
-    public ScenarioService(@Autowired Constraints constraints) {
-        System.out.println("Generating scenario...");
+    @Autowired
+    public ScenarioService(Constraints constraints, Diagnostics diagnostics) {
         this.constraints = constraints;
-        this.building = new Building(constraints);
+        this.trafficPlan = new TrafficPlan(constraints);
+        this.diagnostics = diagnostics;
+
+        registerStage(ScenarioStage.of("checkin", Set.of(), Set.of(BUILDING, CHECKIN_SLICES, OCCUPANTS), this::generateCheckinPickupRequests));
+        registerStage(ScenarioStage.of("destinations", Set.of(CHECKIN_SLICES, OCCUPANTS), Set.of(CHECKIN_SLICES, OCCUPANTS), this::assignCheckinDestinations));
+        registerStage(ScenarioStage.of("leave", Set.of(CHECKIN_SLICES, OCCUPANTS), Set.of(CHECKIN_SLICES, RETURNS), this::addOccupantLeaveRequests));
+        registerStage(ScenarioStage.of("checkout", Set.of(BUILDING, OCCUPANTS, CHECKOUT_WINDOW), Set.of(BUILDING, LATER_SLICES), this::generateCheckoutPickupRequests));
+        registerStage(ScenarioStage.of("return", Set.of(RETURNS), Set.of(CHECKIN_SLICES, LATER_SLICES), this::addReturnRequests));
+        registerStage(ScenarioStage.of("diagnostics", Set.of(CHECKIN_SLICES, LATER_SLICES), Set.of(), (context, rand) -> diagnostics.logPickupRequests(context.getPickupRequests())));
+        registerStage(ScenarioStage.of("normalize", Set.of(CHECKIN_SLICES, LATER_SLICES), Set.of(CHECKIN_SLICES, LATER_SLICES), this::normalizePickupRequestsPerHour));
+
+        if (constraints.getBuildingShards() > 1) {
+            // The stages that work floor by floor are replaced by ones that run each floor range in parallel.
+            ShardedStages sharded = new ShardedStages(constraints, trafficPlan);
+            registerStage(ScenarioStage.of("checkin", Set.of(), Set.of(BUILDING, CHECKIN_SLICES, OCCUPANTS), sharded::generateCheckinPickupRequests));
+            registerStage(ScenarioStage.of("leave", Set.of(CHECKIN_SLICES, OCCUPANTS), Set.of(CHECKIN_SLICES, RETURNS), sharded::addOccupantLeaveRequests));
+            registerStage(ScenarioStage.of("checkout", Set.of(BUILDING, OCCUPANTS, CHECKOUT_WINDOW), Set.of(BUILDING, LATER_SLICES), sharded::generateCheckoutPickupRequests));
+        }
+    }
+
+    /**
+     * Rejects constraints that no scenario can be generated for, with the rules the generation relies on.
+     * @throws IllegalArgumentException if the constraints are not valid.
+     */
+    public static void validate(Constraints constraints) {
+        TrafficPlan.validate(constraints);
+    }
+
+    Constraints getConstraints() {
+        return constraints;
+    }
+
+    /**
+     * Makes a stage available to {@code constraints.stages} under its name, replacing a stage with the same name.
+     */
+    void registerStage(ScenarioStage stage) {
+        stages.put(stage.getName(), stage);
+    }
+
+    /**
+     * @return the pipeline of the stages listed in {@code constraints.stages}, in that order.
+     * @throws IllegalArgumentException if a stage is unknown, or destinations runs after a stage it has to precede.
+     */
+    StagePipeline getPipeline() {
+        List<ScenarioStage> pipeline = new ArrayList<>();
+        for (String name : constraints.getStages()) {
+            ScenarioStage stage = stages.get(name.trim());
+            if (stage == null) {
+                throw new IllegalArgumentException("Unknown stage " + name + ", expected one of " + stages.keySet());
+            }
+            if (stage.getName().equals("destinations")) {
+                for (ScenarioStage earlier : pipeline) {
+                    if (AFTER_DESTINATIONS.contains(earlier.getName())) {
+                        throw new IllegalArgumentException("Stage destinations must run before " + earlier.getName() + ": " + constraints.getStages());
+                    }
+                }
+            }
+            pipeline.add(stage);
+        }
+        return new StagePipeline(pipeline);
     }
 
     public Scenario createScenario() {
-        Map<Integer, List<MoveRequest>> pickupRequests = generateCheckinPickupRequests();
-        randomizeCheckinDestinations(pickupRequests);
-        Queue<MoveRequest> returns = addOccupantLeaveRequests(pickupRequests);
-        addReturnRequests(pickupRequests, returns);
-        generateCheckoutPickupRequests(pickupRequests);
+        return createScenario(System.currentTimeMillis());
+    }
+
+    /**
+     * Scenarios created with the same constraints and seed are identical.
+     */
+    public Scenario createScenario(long seed) {
+        return createScenario(seed, GenerationMetrics.disabled());
+    }
+
+    public Scenario createScenario(long seed, GenerationMetrics metrics) {
+        List<Building> shards = borrowBuildings();
+        ScenarioContext context = new ScenarioContext(constraints, seed, shards);
+        getPipeline().run(context, metrics, constraints.isParallelStages());
+        idleBuildings.offer(shards);
         // TODO: maybe randomize checkouts and add checkins 1 hr after checkout.
-        printPickupRequests(pickupRequests);
-        normalizePickupRequestsPerHour(pickupRequests);
-        return new Scenario(pickupRequests);
+        diagnostics.logSummary(seed, context.getPickupRequests());
+        return new Scenario(context.getPickupRequests());
     }
 
     /**
-     * Generate pickup requests between checkin start time and checkin end time.
-     * @return Map of time slice to list of pickup requests.
+     * Streams a scenario to the writer one time slice at a time, so memory does not grow with the size of the scenario.
+     * The scenario is generated twice with the same seed: the first pass only measures the largest time slice, which
+     * the second pass pads every time slice to.
      */
-    private Map<Integer, List<MoveRequest>> generateCheckinPickupRequests() {
-        Map<Integer, List<MoveRequest>> pickupRequests = new TreeMap<>();
+    public void writeScenario(ScenarioWriter writer, long seed) {
+        writeScenario(writer, seed, GenerationMetrics.disabled());
+    }
+
+    public void writeScenario(ScenarioWriter writer, long seed, GenerationMetrics metrics) {
+        writeScenario(writer, seed, metrics, null);
+    }
 
-        // TODO: Maybe move target occupancy to property file.
-        //    Occupancy could be refactored to allow for a queue of checkins after the building is full.
-        //    A queue would show the benefit of increasing the floors or rooms per floor.
-        int targetOccupancy = (int) Math.round(constraints.getNumberOfFloors() * constraints.getNumberOfRoomsPerFloor() * .8);
+    /**
+     * @param observer receives every request that is written, or null.
+     */
+    public void writeScenario(ScenarioWriter writer, long seed, GenerationMetrics metrics, @Nullable PickupRequestConsumer observer) {
+        PickupRequestConsumer consumer = writer::write;
+        if (observer != null) {
+            consumer = consumer.andThen(observer);
+        }
+        StageTimer timer = metrics.start("measure", 0);
+        // Both passes fill the same building, the second one empties it first.
+        Building building = new Building(constraints);
+        int sliceSize = 0;
+        int timeSlices = 0;
+        long requests = 0;
+        for (ScenarioGenerator generator = new ScenarioGenerator(constraints, seed, 0, building); generator.hasNext(); ) {
+            int size = generator.next().size();
+            sliceSize = Math.max(sliceSize, size);
+            requests += size;
+            timeSlices++;
+        }
+        timer.stop(requests);
+        diagnostics.logSummary(seed, requests, timeSlices, sliceSize);
 
-        // TODO: Maybe move % of checkins during prime time to property file.
-        //    40% of the checkins will happen during prime time (15:00 - 17:00)
-        int checkinsDuringPrimeTime = (int) Math.round(targetOccupancy * .4);
-        // This could be slightly randomized for more interesting data.
-        int checkinsPerPrimeTimeHour = Math.round((float) checkinsDuringPrimeTime / 3);
+        timer = metrics.start("generate", requests);
+        for (ScenarioGenerator generator = new ScenarioGenerator(constraints, seed, sliceSize, building); generator.hasNext(); ) {
+            generator.next().forEach(consumer);
+        }
+        timer.stop(writer.getRequestCount());
+    }
 
-        int remainingCheckins = targetOccupancy - checkinsDuringPrimeTime;
-        // This could be slightly randomized for more interesting data.
-        int checkinsPerNonPrimeTimeHour = Math.round((float) remainingCheckins / (constraints.getCheckinEndTime() - constraints.getCheckinStartTime() - 3));
+    /**
+     * @see ScenarioGenerator#ScenarioGenerator(Constraints, long, int)
+     */
+    public ScenarioGenerator generateScenario(long seed, int sliceSize) {
+        return new ScenarioGenerator(constraints, seed, sliceSize);
+    }
 
-        Random rand = new Random(System.currentTimeMillis());
+    /**
+     * @return empty buildings for a scenario, a finished scenario's when one with the current shape is idle.
+     */
+    private List<Building> borrowBuildings() {
+        List<BuildingLayout> layouts = ScenarioContext.shardLayouts(constraints);
+        for (List<Building> shards = idleBuildings.poll(); shards != null; shards = idleBuildings.poll()) {
+            // Buildings of another shape, left over from changed constraints, are dropped.
+            if (shards.stream().map(Building::getLayout).toList().equals(layouts)) {
+                shards.forEach(Building::reset);
+                return shards;
+            }
+        }
+        return ScenarioContext.createShards(constraints);
+    }
+
+    /**
+     * Generate pickup requests between checkin start time and checkin end time.
+     * Every party is booked into the occupant table, it arrives in its room in the leave stage.
+     */
+    void generateCheckinPickupRequests(ScenarioContext context, RandomGenerator rand) {
+        PickupRequests pickupRequests = context.getPickupRequests();
+        Building building = context.getBuilding();
+        OccupantTable occupantTable = context.getOccupants();
         for (int i = constraints.getCheckinStartTime(); i <= constraints.getCheckinEndTime(); i++) {
-            int occupants = rand.nextInt(4) + 1;
-            timeSlices.add(i);
-            Floor floor = building.getNextFloorWithRoom();
-            if (floor == null) {
+            int occupants = trafficPlan.partySize(rand);
+            int timeSlice = context.addTimeSlice(i);
+            context.setPartySize(timeSlice, occupants);
+            if (!building.hasFreeRoom()) {
                 break;
             }
 
-            // TODO: Maybe move prime time range to property file.
-            boolean isBusyTime = i == 15 || i == 16 || i == 17;
-            int checkins = isBusyTime ? checkinsPerPrimeTimeHour : checkinsPerNonPrimeTimeHour;
+            int checkins = trafficPlan.checkinsAt(i);
             for (int j = 0; j < checkins; j++) {
-                MoveRequest moveRequest = new MoveRequest(1, floor.getFloorNumber());
-                moveRequest.validate();
-                pickupRequests.computeIfAbsent(timeSlices.size(), _ -> new ArrayList<>()).add(moveRequest);
-                building.checkInOccupants(floor, occupants);
+                Room room = building.checkIn(occupants);
+                if (room == null) {
+                    break;
+                }
+                int floor = building.getFloorNumber(room);
+                occupantTable.book(room.getRoomNumber(), floor, occupants);
+                MoveRequest.validate(1, floor);
+                pickupRequests.add(timeSlice, 1, floor);
             }
         }
-
-        return pickupRequests;
+        context.endCheckins();
     }
 
     /**
      * The intent of this method is to create more interesting scenario data.
-     * Randomly swaps the destination floors of pickup requests.
+     * Draws the destination floor of every check-in from {@code constraints.checkin-destinations}, in one pass over
+     * the check-in time slices. No floor gets more check-ins than it has rooms. The party moves to the drawn floor in
+     * the occupant table as well, so it leaves and checks out from there.
      */
-    private void randomizeCheckinDestinations(Map<Integer, List<MoveRequest>> pickupRequests) {
-        List<Integer> keys = new ArrayList<>(pickupRequests.size());
-        Map<Integer, List<Integer>> indexMap = new HashMap<>();
-        for (Map.Entry<Integer, List<MoveRequest>> integerListEntry : pickupRequests.entrySet()) {
-            keys.add(integerListEntry.getKey());
-            List<MoveRequest> value = integerListEntry.getValue();
-            for (int i = 0; i < value.size(); i++) {
-                indexMap.computeIfAbsent(integerListEntry.getKey(), _ -> new ArrayList<>()).add(i);
-            }
-        }
-
-        Random rand = new Random(System.currentTimeMillis());
-        while (!keys.isEmpty()) {
-            int keyIndex = rand.nextInt(keys.size());
-            int key = keys.remove(keyIndex);
-            if (keys.isEmpty()) {
-                break;
-            }
-            List<Integer> prIndexes = indexMap.get(key);
-            for (int i = 0; i < prIndexes.size(); i++) {
-                MoveRequest pr1 = pickupRequests.get(key).get(i);
-
-                // Randomly select a pickup request from another time slice.
-                int keyIndex2 = rand.nextInt(keys.size());
-                int key2 = keys.get(keyIndex2);
-                List<Integer> indexes2 = indexMap.get(key2);
-                int prIndex2 = rand.nextInt(indexes2.size());
-                MoveRequest pr2 = pickupRequests.get(key2).get(prIndex2);
-
-                // Swap the destination floors.
-                int destFloor = pr1.getDestinationFloor();
-                pr1.setDestinationFloor(pr2.getDestinationFloor());
-                pr2.setDestinationFloor(destFloor);
+    void assignCheckinDestinations(ScenarioContext context, RandomGenerator rand) {
+        PickupRequests pickupRequests = context.getPickupRequests();
+        CheckinDestinations destinations = trafficPlan.checkinDestinations();
+        List<OccupantTable> occupants = context.getShardOccupants();
+        // The next occupant of each shard. Check-in requests still go to the floor of their room, which tells the shard,
+        // and each shard books its rooms in the order of the requests.
+        int[] nextOccupants = new int[occupants.size()];
+        for (int timeSlice : pickupRequests.getTimeSlices(1, context.getLastCheckinTimeSlice())) {
+            int partySize = context.getPartySize(timeSlice);
+            for (int i = 0; i < pickupRequests.size(timeSlice); i++) {
+                if (pickupRequests.getCurrentFloor(timeSlice, i) == 1) {
+                    int shard = context.getShard(pickupRequests.getDestinationFloor(timeSlice, i));
+                    int floor = destinations.next(rand);
+                    pickupRequests.setDestinationFloor(timeSlice, i, floor);
+                    for (int j = 0; j < partySize; j++) {
+                        occupants.get(shard).setFloor(nextOccupants[shard]++, floor);
+                    }
+                }
             }
         }
     }
@@ -121,141 +247,110 @@ public class ScenarioService {
      * The intent of this method is to create more interesting scenario data.
      * Occupants will leave the building during the day, and come back.
      */
-    private Queue<MoveRequest> addOccupantLeaveRequests(Map<Integer, List<MoveRequest>> pickupRequests) {
+    void addOccupantLeaveRequests(ScenarioContext context, RandomGenerator rand) {
         // It seems reasonable for occupants to use the elevator more often between certain times, like lunch, dinner, or an
         // evening out.
         // For more interesting data, a percentage of occupants can move from 1 floor to another instead of leaving the building.
         // Must return by 12PM.
         // Every occupant that leaves needs to return before checkout time.
-        Random rand = new Random(System.currentTimeMillis());
-        Queue<MoveRequest> leaveQueue = new LinkedList<>();
-        Queue<MoveRequest> returnQueue = new LinkedList<>();
-        for (Integer i : pickupRequests.keySet()) {
-            int portionOfOccupants = rand.nextInt(20) + 20;
-            List<MoveRequest> moveRequestList = pickupRequests.get(i);
-            int numberOfUpdates = (int) Math.round(moveRequestList.size() * portionOfOccupants * .01);
-            Set<Integer> updatedIndexes = new HashSet<>();
-            for (int j = 0; j < numberOfUpdates; j++) {
-                int index = rand.nextInt(moveRequestList.size());
-                if (!updatedIndexes.add(index) || !pickupRequests.containsKey(i + 1)) {
-                    continue;
-                }
-                MoveRequest moveRequest = moveRequestList.get(index);
-                Elevator.Direction direction;
-                if (moveRequest.getDestinationFloor() == constraints.getNumberOfFloors()) {
-                    direction = Elevator.Direction.DOWN;
-                } else {
-                    boolean up = rand.nextInt(99) < 30;
-                    direction = up ? Elevator.Direction.UP : Elevator.Direction.DOWN;
-                }
-
-                MoveRequest leaveRequest = new MoveRequest(moveRequest.getDestinationFloor(), 0, i + 1);
-                int destFloor;
-                switch (direction) {
-                    case UP:
-                        destFloor = rand.nextInt(constraints.getNumberOfFloors()) + 1;
-                        if (destFloor == leaveRequest.getCurrentFloor()) {
-                            destFloor++;
-                        }
-
-                        leaveRequest.setDestinationFloor(destFloor);
-                        break;
-                    case DOWN:
-                        destFloor = rand.nextInt(moveRequest.getCurrentFloor()) + 1;
-                        if (leaveRequest.getCurrentFloor() != 1 && destFloor == leaveRequest.getCurrentFloor()) {
-                            destFloor--;
-                        }
-
-                        leaveRequest.setDestinationFloor(destFloor);
-                        break;
-                    default:
-                        throw new UnsupportedOperationException("This should never happen.");
+        // Leave requests are due in the time slice after they are drawn. The parties booked by the check-in stage
+        // arrive in their check-in time slice, and only occupants that are in their room can leave, see OccupantTable.
+        // They move on a copy of the bookings, which the checkout stage reads at the same time.
+        // An occupant's return request goes from where it is back to its floor, in a time slice drawn when it leaves.
+        PickupRequests pickupRequests = context.getPickupRequests();
+        TimingWheel returns = context.getReturns();
+        PickupRequestConsumer returnRequests = (timeSlice, currentFloor, destinationFloor) ->
+                returns.schedule(timeSlice, PickupRequests.pack(currentFloor, destinationFloor));
+        TimingWheel leaves = new TimingWheel();
+        OccupantTable occupants = context.getOccupants().copy();
+        // Occupants that are away, by the time slice they are back in.
+        TimingWheel awayOccupants = new TimingWheel();
+        int lastCheckinTimeSlice = context.getLastCheckinTimeSlice();
+        for (int i : pickupRequests.getTimeSlices(1, lastCheckinTimeSlice)) {
+            while (awayOccupants.getCurrentTimeSlice() <= i) {
+                returnToRooms(occupants, awayOccupants, returnRequests);
+            }
+            int size = pickupRequests.size(i);
+            occupants.arrive(size * context.getPartySize(i));
+
+            int portionOfOccupants = trafficPlan.leavePercentage(rand);
+            if (i + 1 <= lastCheckinTimeSlice && pickupRequests.contains(i + 1)) {
+                int numberOfUpdates = (int) Math.round(size * portionOfOccupants * .01);
+                for (int j = 0; j < numberOfUpdates && occupants.getPresentCount() > 0; j++) {
+                    int occupant = occupants.getRandomPresentOccupant(rand);
+                    int leaveFloor = occupants.getLocation(occupant);
+                    int destFloor = trafficPlan.leaveDestination(leaveFloor, rand);
+                    int returnTime = trafficPlan.returnTime(i + 2, rand);
+                    occupants.leave(occupant, destFloor);
+                    awayOccupants.schedule(returnTime, occupant);
+
+                    MoveRequest.validate(leaveFloor, destFloor);
+                    leaves.schedule(i + 1, PickupRequests.pack(leaveFloor, destFloor));
                 }
-
-                leaveRequest.validate();
-                leaveQueue.add(leaveRequest);
-
-                MoveRequest returnRequest = new MoveRequest(leaveRequest.getDestinationFloor(), leaveRequest.getCurrentFloor(), i + 2);
-                returnRequest.validate();
-                returnQueue.add(returnRequest);
             }
+
+            // Appending and scattering places every leave request at a random position in one pass.
+            int timeSlice = i;
+            leaves.drain(timeSlice, record -> pickupRequests.add(timeSlice, record));
+            pickupRequests.scatter(timeSlice, size, rand);
         }
+        // Every occupant is back in its room before checkout.
+        while (!awayOccupants.isEmpty()) {
+            returnToRooms(occupants, awayOccupants, returnRequests);
+        }
+    }
 
-        while (!leaveQueue.isEmpty()) {
-            MoveRequest moveRequest = leaveQueue.poll();
-            if (!pickupRequests.containsKey(moveRequest.getTargetTime())) {
-                throw new UnsupportedOperationException("This should never happen.");
+    /**
+     * Brings the occupants that are due back in the wheel's current time slice to their rooms, and hands their return
+     * requests for that time slice to {@code returns}. Occupants whose party checked out meanwhile do not return.
+     */
+    static void returnToRooms(OccupantTable occupants, TimingWheel awayOccupants, PickupRequestConsumer returns) {
+        int timeSlice = awayOccupants.getCurrentTimeSlice();
+        awayOccupants.drain(timeSlice, record -> {
+            int occupant = (int) record;
+            if (occupants.getState(occupant) != OccupantTable.AWAY) {
+                return;
             }
-            List<MoveRequest> moveRequestList = pickupRequests.get(moveRequest.getTargetTime());
-            moveRequest.setTargetTime(null);
-            int index = rand.nextInt(moveRequestList.size());
-            moveRequestList.add(index, moveRequest);
-        }
-        return returnQueue;
+            int location = occupants.getLocation(occupant);
+            int floor = occupants.getFloor(occupant);
+            occupants.returnToRoom(occupant);
+            MoveRequest.validate(location, floor);
+            returns.accept(timeSlice, location, floor);
+        });
     }
 
     /**
      * The intent of this method is to create more interesting scenario data.
-     * Occupants that leave the building will return at a later time.
+     * Occupants that leave the building will return at a later time, drawn when they leave.
      */
-    private void addReturnRequests(Map<Integer, List<MoveRequest>> pickupRequests, Queue<MoveRequest> returns) {
-        Random rand = new Random(System.currentTimeMillis());
-        while (!returns.isEmpty()) {
-            MoveRequest returnRequest = returns.poll();
-            assert returnRequest.getTargetTime() != null;
-            int returnTime = rand.nextInt(constraints.getCheckinEndTime() - returnRequest.getTargetTime()) + returnRequest.getTargetTime();
-            List<MoveRequest> moveRequestList = pickupRequests.computeIfAbsent(returnTime, _ -> new ArrayList<>());
-            returnRequest.setTargetTime(null);
-            moveRequestList.add(returnRequest);
+    void addReturnRequests(ScenarioContext context, RandomGenerator rand) {
+        PickupRequests pickupRequests = context.getPickupRequests();
+        TimingWheel returns = context.getReturns();
+        for (int time = returns.getCurrentTimeSlice(); !returns.isEmpty(); time++) {
+            int targetTime = time;
+            returns.drain(targetTime, record -> pickupRequests.add(targetTime, record));
         }
     }
 
     /**
      * Generate checkout pickup requests between checkout start time and checkout end time.
+     * Parties check out of a copy of the bookings, which the leave stage reads at the same time.
      */
-    private void generateCheckoutPickupRequests(Map<Integer, List<MoveRequest>> pickupRequests) {
-        Collection<Floor> floors = building.getFloors().values();
-        Map<Room, Floor> roomFloorMap = new IdentityHashMap<>();
-        for (Floor floor : floors) {
-            if (floor.getRoomList().isEmpty()) {
-                continue;
-            }
-            for (Room room : floor.getRoomList()) {
-                if (room.getOccupants() == 0) {
-                    continue;
-                }
-                roomFloorMap.put(room, floor);
-            }
-        }
-        List<Room> occupiedRooms = building.getOccupiedRooms();
-
-        List<Integer> remainingRooms = new ArrayList<>(occupiedRooms.size());
-        for (int i = 0; i < occupiedRooms.size(); i++) {
-            remainingRooms.add(i);
-        }
-
-        int checkoutsDuringPrimeTime = (int) Math.round(occupiedRooms.size() * .5);
-        int checkoutsPerPrimeTimeHour = Math.round((float) checkoutsDuringPrimeTime / 2);
-
-        int remainingCheckouts = occupiedRooms.size() - checkoutsDuringPrimeTime;
-        int checkoutsPerNonPrimeTimeHour = Math.round((float) remainingCheckouts / (constraints.getCheckoutEndTime() - constraints.getCheckoutStartTime() - 2));
-
-        Random rand = new Random(System.currentTimeMillis());
+    void generateCheckoutPickupRequests(ScenarioContext context, RandomGenerator rand) {
+        PickupRequests pickupRequests = context.getPickupRequests();
+        Building building = context.getBuilding();
+        OccupantTable occupants = context.getOccupants().copy();
+        int occupiedRooms = building.getOccupiedRoomCount();
         for (int i = constraints.getCheckoutStartTime(); i <= constraints.getCheckoutEndTime(); i++) {
-            timeSlices.add(i);
-            boolean isBusyTime = i == 7 || i == 8;
-            int checkouts = isBusyTime ? checkoutsPerPrimeTimeHour : checkoutsPerNonPrimeTimeHour;
-            for (int j = 0; j < checkouts && !remainingRooms.isEmpty(); j++) {
-                int index = rand.nextInt(remainingRooms.size());
-                Room room = occupiedRooms.get(index);
-                Floor floor = roomFloorMap.get(room);
-                if (floor == null) {
-                    throw new RuntimeException("No floor found for room " + room.getRoomNumber());
-                }
-                MoveRequest moveRequest = new MoveRequest(floor.getFloorNumber(), 1);
-                moveRequest.validate();
-                pickupRequests.computeIfAbsent(timeSlices.size(), _ -> new ArrayList<>()).add(moveRequest);
-                remainingRooms.remove(index);
+            int timeSlice = context.addTimeSlice(i);
+            int checkouts = trafficPlan.checkoutsAt(i, occupiedRooms);
+            for (int j = 0; j < checkouts && building.getOccupiedRoomCount() > 0; j++) {
+                // The party checks out from the floor it checked into.
+                Room room = building.getRandomOccupiedRoom(rand);
+                int floor = occupants.checkOut(room.getRoomNumber());
+                building.checkOut(room);
+                MoveRequest.validate(floor, 1);
+                pickupRequests.add(timeSlice, floor, 1);
             }
         }
     }
@@ -264,35 +359,19 @@ public class ScenarioService {
      * The intent of this method is to create more interesting scenario data.
      * Each time slice should have the same number of pickup requests.
      */
-    private void normalizePickupRequestsPerHour(Map<Integer, List<MoveRequest>> pickupRequests) {
-        int maxRequestsPerHour = 0;
-        for (List<MoveRequest> values : pickupRequests.values()) {
-            if (maxRequestsPerHour < values.size()) {
-                maxRequestsPerHour = values.size();
-            }
-        }
+    void normalizePickupRequestsPerHour(ScenarioContext context, RandomGenerator rand) {
+        PickupRequests pickupRequests = context.getPickupRequests();
+        int maxRequestsPerHour = pickupRequests.getMaxSliceSize();
 
         // Fills each time slice with the max number of requests.
         // This allows each time slice to be split up evenly during the simulation.
-        for (List<MoveRequest> values : pickupRequests.values()) {
-            int difference = maxRequestsPerHour - values.size();
+        long padding = PickupRequests.pack(0, 0);
+        for (int timeSlice : pickupRequests.getTimeSlices()) {
+            int size = pickupRequests.size(timeSlice);
+            int difference = maxRequestsPerHour - size;
             if (difference > 0) {
-                Random rand = new Random(System.currentTimeMillis());
-                for (int j = 0; j < difference; j++) {
-                    int index = rand.nextInt(values.size());
-                    values.add(index, new MoveRequest(0, 0));
-                }
-            }
-        }
-
-        System.out.println();
-    }
-
-    private void printPickupRequests(Map<Integer, List<MoveRequest>> pickupRequests) {
-        for (Map.Entry<Integer, List<MoveRequest>> entry : pickupRequests.entrySet()) {
-            System.out.println("Time: " + entry.getKey());
-            for (MoveRequest moveRequest : entry.getValue()) {
-                System.out.println("  " + moveRequest);
+                pickupRequests.fill(timeSlice, padding, difference);
+                pickupRequests.scatter(timeSlice, size, rand);
             }
         }
     }
@@ -0,0 +1,55 @@
+package org.base.scenario.service;
+
+import java.util.Set;
+import java.util.random.RandomGenerator;
+
+/**
+ * One step of the in-memory scenario pipeline, see {@link StagePipeline}.
+ */
+interface ScenarioStage {
+
+    String getName();
+
+    Set<StageResource> getReads();
+
+    Set<StageResource> getWrites();
+
+    /**
+     * @param rand the stage's own random stream, split from the scenario seed in pipeline order.
+     */
+    void apply(ScenarioContext context, RandomGenerator rand);
+
+    static ScenarioStage of(String name, Set<StageResource> reads, Set<StageResource> writes, Action action) {
+        return new ScenarioStage() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public Set<StageResource> getReads() {
+                return reads;
+            }
+
+            @Override
+            public Set<StageResource> getWrites() {
+                return writes;
+            }
+
+            @Override
+            public void apply(ScenarioContext context, RandomGenerator rand) {
+                action.apply(context, rand);
+            }
+
+            @Override
+            public String toString() {
+                return name;
+            }
+        };
+    }
+
+    @FunctionalInterface
+    interface Action {
+        void apply(ScenarioContext context, RandomGenerator rand);
+    }
+}
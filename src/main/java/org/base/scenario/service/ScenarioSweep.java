@@ -0,0 +1,260 @@
+package org.base.scenario.service;
+
+import org.base.scenario.diagnostics.Diagnostics;
+import org.base.scenario.diagnostics.DiagnosticsMode;
+import org.base.scenario.metrics.GenerationMetrics;
+import org.base.scenario.model.Constraints;
+import org.base.scenario.model.PickupRequests;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.BeanUtils;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+import static org.base.scenario.service.StageResource.CHECKOUT_WINDOW;
+
+/**
+ * Generates a scenario for every configuration in a grid of constraint values, see {@code constraints.sweep}, and
+ * summarizes their request volumes in one table.
+ * <p>
+ * Configurations that only differ in their checkout window share everything the check-in period produces. They are
+ * generated together by one worker: the stages that do not depend on {@link StageResource#CHECKOUT_WINDOW} run once,
+ * and the other stages run on a copy of their results for every checkout window. Each configuration is the scenario a
+ * batch run with the same constraints and seed creates.
+ */
+public class ScenarioSweep {
+    // Constraints a sweep can vary, the ones that make up the building and its schedule.
+    private static final Set<String> SWEEPABLE = Set.of("number-of-floors", "number-of-rooms-per-floor",
+            "max-occupants-per-room", "checkin-start-time", "checkin-end-time", "checkout-start-time",
+            "checkout-end-time");
+    private static final Set<String> CHECKOUT_WINDOW_CONSTRAINTS = Set.of("checkout-start-time", "checkout-end-time");
+
+    private final Constraints constraints;
+    private final Diagnostics diagnostics;
+
+    public ScenarioSweep(Constraints constraints, Diagnostics diagnostics) {
+        this.constraints = constraints;
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * Request volumes of one configuration.
+     *
+     * @param values        the swept constraints of the configuration, by property name.
+     * @param requests      the requests without padding.
+     * @param records       the requests with padding.
+     * @param reusedStages  the number of stages whose results were taken from an earlier configuration.
+     */
+    public record SweepResult(Map<String, String> values, int timeSlices, long requests, int maxSliceSize,
+                              long records, int reusedStages) {
+    }
+
+    /**
+     * Generates every configuration and writes the table to {@code <outputName>.sweep.csv}.
+     */
+    public List<SweepResult> run(long seed) {
+        long start = System.nanoTime();
+        List<SweepResult> results = sweep(seed, null);
+        Path path = Path.of(constraints.getOutputName() + ".sweep.csv");
+        writeCsv(path, results);
+        int reused = results.stream().mapToInt(SweepResult::reusedStages).sum();
+        System.out.printf("Swept %d configuration(s) in %.0f ms, reused %d stage result(s), wrote %s%n",
+                results.size(), (System.nanoTime() - start) / 1e6, reused, path);
+        return results;
+    }
+
+    /**
+     * @param observer receives the requests of every configuration, from the worker that generated it, or null.
+     * @return the volumes of every configuration, in grid order.
+     */
+    List<SweepResult> sweep(long seed, @Nullable BiConsumer<Map<String, String>, PickupRequests> observer) {
+        List<Map<String, String>> grid = grid();
+        // Configurations that only differ in their checkout window, in grid order.
+        Map<Map<String, String>, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < grid.size(); i++) {
+            Map<String, String> key = new LinkedHashMap<>(grid.get(i));
+            key.keySet().removeAll(CHECKOUT_WINDOW_CONSTRAINTS);
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+        }
+
+        int workers = constraints.getSweepWorkers() > 0 ? constraints.getSweepWorkers() : Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(workers, groups.size()));
+        try {
+            List<Future<List<SweepResult>>> futures = new ArrayList<>();
+            for (List<Integer> group : groups.values()) {
+                List<Map<String, String>> configurations = group.stream().map(grid::get).toList();
+                futures.add(executor.submit(() -> generate(configurations, seed, observer)));
+            }
+
+            SweepResult[] results = new SweepResult[grid.size()];
+            int g = 0;
+            for (List<Integer> group : groups.values()) {
+                List<SweepResult> groupResults = futures.get(g++).get();
+                for (int i = 0; i < group.size(); i++) {
+                    results[group.get(i)] = groupResults.get(i);
+                }
+            }
+            return List.of(results);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while sweeping", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Generates configurations that share everything but their checkout window.
+     */
+    private List<SweepResult> generate(List<Map<String, String>> configurations, long seed,
+                                       @Nullable BiConsumer<Map<String, String>, PickupRequests> observer) {
+        Constraints first = configure(configurations.get(0));
+        StagePipeline pipeline = new ScenarioService(first, diagnostics).getPipeline();
+        BitSet perCheckoutWindow = pipeline.dependentsOf(CHECKOUT_WINDOW);
+        BitSet shared = new BitSet();
+        shared.set(0, pipeline.getStages().size());
+        shared.andNot(perCheckoutWindow);
+
+        ScenarioContext checkinPeriod = new ScenarioContext(first, seed);
+        pipeline.run(checkinPeriod, GenerationMetrics.disabled(), first.isParallelStages(), shared);
+
+        List<SweepResult> results = new ArrayList<>(configurations.size());
+        for (int i = 0; i < configurations.size(); i++) {
+            Constraints configuration = i == 0 ? first : configure(configurations.get(i));
+            ScenarioContext context = checkinPeriod.copy(configuration);
+            new ScenarioService(configuration, diagnostics).getPipeline()
+                    .run(context, GenerationMetrics.disabled(), configuration.isParallelStages(), perCheckoutWindow);
+            PickupRequests pickupRequests = context.getPickupRequests();
+            if (observer != null) {
+                observer.accept(configurations.get(i), pickupRequests);
+            }
+            results.add(summarize(configurations.get(i), pickupRequests, i == 0 ? 0 : shared.cardinality()));
+        }
+        return results;
+    }
+
+    private static SweepResult summarize(Map<String, String> values, PickupRequests pickupRequests, int reusedStages) {
+        long[] requests = new long[1];
+        pickupRequests.forEach((timeSlice, currentFloor, destinationFloor) -> {
+            if (currentFloor != 0 || destinationFloor != 0) {
+                requests[0]++;
+            }
+        });
+        return new SweepResult(values, pickupRequests.getTimeSlices().length, requests[0],
+                pickupRequests.getMaxSliceSize(), pickupRequests.getRequestCount(), reusedStages);
+    }
+
+    /**
+     * @return every combination of the swept values, the last constraint varying fastest.
+     */
+    List<Map<String, String>> grid() {
+        if (constraints.getSweep().isEmpty()) {
+            throw new IllegalArgumentException("Nothing to sweep, set constraints.sweep.<constraint>");
+        }
+        List<Map<String, String>> grid = new ArrayList<>();
+        grid.add(new LinkedHashMap<>());
+        for (Map.Entry<String, String> entry : constraints.getSweep().entrySet()) {
+            if (!SWEEPABLE.contains(entry.getKey())) {
+                throw new IllegalArgumentException("Cannot sweep " + entry.getKey() + ", expected one of " + SWEEPABLE);
+            }
+            List<Map<String, String>> next = new ArrayList<>();
+            for (Map<String, String> configuration : grid) {
+                for (int value : values(entry.getValue())) {
+                    Map<String, String> combined = new LinkedHashMap<>(configuration);
+                    combined.put(entry.getKey(), Integer.toString(value));
+                    next.add(combined);
+                }
+            }
+            grid = next;
+        }
+        grid.forEach(configuration -> TrafficPlan.validate(configure(configuration)));
+        return grid;
+    }
+
+    /**
+     * Parses {@code 10,20,40}, {@code 10..40} or {@code 10..40:10}.
+     */
+    static int[] values(String values) {
+        String trimmed = values.trim();
+        int dots = trimmed.indexOf("..");
+        if (dots < 0) {
+            return Arrays.stream(trimmed.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+        }
+        int step = 1;
+        String end = trimmed.substring(dots + 2);
+        int separator = end.indexOf(':');
+        if (separator >= 0) {
+            step = Integer.parseInt(end.substring(separator + 1).trim());
+            end = end.substring(0, separator);
+        }
+        int from = Integer.parseInt(trimmed.substring(0, dots).trim());
+        int to = Integer.parseInt(end.trim());
+        if (step < 1 || to < from) {
+            throw new IllegalArgumentException("Invalid range " + values + ", expected <from>..<to>[:<step>] with from <= to and step >= 1");
+        }
+        int[] range = new int[(to - from) / step + 1];
+        for (int i = 0; i < range.length; i++) {
+            range[i] = from + i * step;
+        }
+        return range;
+    }
+
+    /**
+     * @return a copy of the constraints with the configuration's values.
+     */
+    private Constraints configure(Map<String, String> configuration) {
+        Constraints configured = new Constraints();
+        BeanUtils.copyProperties(constraints, configured);
+        MapConfigurationPropertySource overrides = new MapConfigurationPropertySource();
+        configuration.forEach((name, value) -> overrides.put("constraints." + name, value));
+        new Binder(overrides).bind("constraints", Bindable.ofInstance(configured));
+        return configured;
+    }
+
+    private void writeCsv(Path path, List<SweepResult> results) {
+        StringBuilder sb = new StringBuilder();
+        for (String name : constraints.getSweep().keySet()) {
+            sb.append(name).append(',');
+        }
+        sb.append("time_slices,requests,max_requests_per_time_slice,records,reused_stages\n");
+        for (SweepResult result : results) {
+            for (String value : result.values().values()) {
+                sb.append(value).append(',');
+            }
+            sb.append(result.timeSlices()).append(',')
+                    .append(result.requests()).append(',')
+                    .append(result.maxSliceSize()).append(',')
+                    .append(result.records()).append(',')
+                    .append(result.reusedStages()).append('\n');
+        }
+        try {
+            Files.writeString(path, sb.toString(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write the sweep table " + path, e);
+        }
+        diagnostics.log(DiagnosticsMode.SUMMARY, "Sweep table: " + path);
+    }
+}
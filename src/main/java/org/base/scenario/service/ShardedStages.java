@@ -0,0 +1,278 @@
+package org.base.scenario.service;
+
+import org.base.scenario.io.PickupRequestConsumer;
+import org.base.scenario.model.Building;
+import org.base.scenario.model.Constraints;
+import org.base.scenario.model.MoveRequest;
+import org.base.scenario.model.OccupantTable;
+import org.base.scenario.model.PickupRequests;
+import org.base.scenario.model.Room;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.IntFunction;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+
+/**
+ * Check-in, leave and checkout stages for a building that is split into floor ranges, see
+ * {@code constraints.building-shards}.
+ * <p>
+ * Each shard generates the requests of its own floors into its own {@link PickupRequests}, in parallel on the common
+ * fork-join pool and with a random stream that is split off the stage's in shard order. The work that spans the whole
+ * building, like the number of requests per hour, is worked out before the shards start. Their requests are appended
+ * to the scenario afterwards in shard order, so a scenario depends on the number of shards but not on the number of
+ * threads that run them.
+ */
+class ShardedStages {
+    private final Constraints constraints;
+    private final TrafficPlan trafficPlan;
+
+    ShardedStages(Constraints constraints, TrafficPlan trafficPlan) {
+        this.constraints = constraints;
+        this.trafficPlan = trafficPlan;
+    }
+
+    /**
+     * The building fills its rooms in order, so the number of check-ins per hour decides which room each check-in
+     * gets. The shards check into the rooms of their floors that fall in each hour's range, which makes the requests
+     * the same as {@link ScenarioService#generateCheckinPickupRequests} produces for the whole building. Each shard books
+     * its parties into its own {@link OccupantTable}.
+     */
+    void generateCheckinPickupRequests(ScenarioContext context, RandomGenerator rand) {
+        List<Building> shards = context.getShards();
+        List<OccupantTable> shardOccupants = context.getShardOccupants();
+        // The check-ins that fall into each shard, by their order across the whole building.
+        long[] firstCheckins = new long[shards.size() + 1];
+        for (int shard = 0; shard < shards.size(); shard++) {
+            firstCheckins[shard + 1] = firstCheckins[shard] + shards.get(shard).getFreeRoomCount();
+        }
+
+        int hours = constraints.getCheckinEndTime() - constraints.getCheckinStartTime() + 1;
+        int[] timeSlices = new int[hours];
+        int[] occupants = new int[hours];
+        int[] checkins = new int[hours];
+        long freeRooms = firstCheckins[shards.size()];
+        int checkinHours = 0;
+        for (int i = constraints.getCheckinStartTime(); i <= constraints.getCheckinEndTime(); i++) {
+            occupants[checkinHours] = trafficPlan.partySize(rand);
+            timeSlices[checkinHours] = context.addTimeSlice(i);
+            context.setPartySize(timeSlices[checkinHours], occupants[checkinHours]);
+            if (freeRooms == 0) {
+                break;
+            }
+            checkins[checkinHours] = (int) Math.min(trafficPlan.checkinsAt(i), freeRooms);
+            freeRooms -= checkins[checkinHours];
+            checkinHours++;
+        }
+
+        int hourCount = checkinHours;
+        List<PickupRequests> requests = runShards(shards.size(), shard -> {
+            Building building = shards.get(shard);
+            OccupantTable occupantTable = shardOccupants.get(shard);
+            PickupRequests shardRequests = new PickupRequests();
+            long checkedIn = 0;
+            for (int h = 0; h < hourCount; h++) {
+                long first = Math.max(checkedIn, firstCheckins[shard]);
+                long last = Math.min(checkedIn + checkins[h], firstCheckins[shard + 1]);
+                for (long k = first; k < last; k++) {
+                    Room room = building.checkIn(occupants[h]);
+                    int floor = building.getFloorNumber(room);
+                    occupantTable.book(room.getRoomNumber(), floor, occupants[h]);
+                    MoveRequest.validate(1, floor);
+                    shardRequests.add(timeSlices[h], 1, floor);
+                }
+                checkedIn += checkins[h];
+            }
+            return shardRequests;
+        });
+
+        PickupRequests pickupRequests = context.getPickupRequests();
+        requests.forEach(pickupRequests::addAll);
+        context.endCheckins();
+    }
+
+    /**
+     * Each shard picks the occupants that leave from a copy of the {@link OccupantTable} of its rooms, the leave
+     * requests of every shard are then scattered over their time slice together. The check-ins of each time slice fall
+     * into the shards the same way as in {@link #generateCheckinPickupRequests}, which tells each shard which of its
+     * parties arrive.
+     *
+     * @see ScenarioService#addOccupantLeaveRequests
+     */
+    void addOccupantLeaveRequests(ScenarioContext context, RandomGenerator rand) {
+        PickupRequests pickupRequests = context.getPickupRequests();
+        List<OccupantTable> shardOccupants = context.getShardOccupants();
+        int lastCheckinTimeSlice = context.getLastCheckinTimeSlice();
+        int[] timeSlices = pickupRequests.getTimeSlices(1, lastCheckinTimeSlice);
+        long[] seeds = seeds(rand, shardOccupants.size());
+        long[] firstCheckins = new long[shardOccupants.size() + 1];
+        for (int shard = 0; shard < shardOccupants.size(); shard++) {
+            firstCheckins[shard + 1] = firstCheckins[shard] + shardOccupants.get(shard).getPartyCount();
+        }
+
+        List<LeaveRequests> requests = runShards(shardOccupants.size(), shard -> {
+            OccupantTable occupants = shardOccupants.get(shard).copy();
+            RandomGenerator shardRand = new SplittableRandom(seeds[shard]);
+            LeaveRequests leaveRequests = new LeaveRequests(new PickupRequests(), new PickupRequests());
+            PickupRequestConsumer returnRequests = leaveRequests.returns()::add;
+            TimingWheel awayOccupants = new TimingWheel();
+            long checkedIn = 0;
+            for (int i : timeSlices) {
+                while (awayOccupants.getCurrentTimeSlice() <= i) {
+                    ScenarioService.returnToRooms(occupants, awayOccupants, returnRequests);
+                }
+                int size = pickupRequests.size(i);
+                int checkins = (int) Math.max(0, Math.min(checkedIn + size, firstCheckins[shard + 1]) - Math.max(checkedIn, firstCheckins[shard]));
+                checkedIn += size;
+                occupants.arrive(checkins * context.getPartySize(i));
+                if (i + 1 > lastCheckinTimeSlice || !pickupRequests.contains(i + 1)) {
+                    continue;
+                }
+
+                int portionOfOccupants = trafficPlan.leavePercentage(shardRand);
+                int numberOfUpdates = (int) Math.round(checkins * portionOfOccupants * .01);
+                for (int j = 0; j < numberOfUpdates && occupants.getPresentCount() > 0; j++) {
+                    int occupant = occupants.getRandomPresentOccupant(shardRand);
+                    int leaveFloor = occupants.getLocation(occupant);
+                    int destFloor = trafficPlan.leaveDestination(leaveFloor, shardRand);
+                    int returnTime = trafficPlan.returnTime(i + 2, shardRand);
+                    occupants.leave(occupant, destFloor);
+                    awayOccupants.schedule(returnTime, occupant);
+
+                    MoveRequest.validate(leaveFloor, destFloor);
+                    leaveRequests.leaves().add(i + 1, leaveFloor, destFloor);
+                }
+            }
+            // Every occupant is back in its room before checkout.
+            while (!awayOccupants.isEmpty()) {
+                ScenarioService.returnToRooms(occupants, awayOccupants, returnRequests);
+            }
+            return leaveRequests;
+        });
+
+        int[] sizes = sizes(pickupRequests, timeSlices);
+        TimingWheel returns = context.getReturns();
+        for (LeaveRequests leaveRequests : requests) {
+            pickupRequests.addAll(leaveRequests.leaves());
+            leaveRequests.returns().forEach((timeSlice, currentFloor, destinationFloor) ->
+                    returns.schedule(timeSlice, PickupRequests.pack(currentFloor, destinationFloor)));
+        }
+        scatter(pickupRequests, timeSlices, sizes, rand);
+    }
+
+    /**
+     * The checkouts of each hour are split between the shards in proportion to the rooms that are still occupied in
+     * each of them, which is how uniform picks over the whole building would split them on average. Each party checks
+     * out through a copy of the {@link OccupantTable} of its shard.
+     *
+     * @see ScenarioService#generateCheckoutPickupRequests
+     */
+    void generateCheckoutPickupRequests(ScenarioContext context, RandomGenerator rand) {
+        List<Building> shards = context.getShards();
+        int[] occupied = new int[shards.size()];
+        int occupiedRooms = 0;
+        for (int shard = 0; shard < shards.size(); shard++) {
+            occupied[shard] = shards.get(shard).getOccupiedRoomCount();
+            occupiedRooms += occupied[shard];
+        }
+
+        int hours = constraints.getCheckoutEndTime() - constraints.getCheckoutStartTime() + 1;
+        int[] timeSlices = new int[hours];
+        int[][] checkouts = new int[hours][];
+        int remainingRooms = occupiedRooms;
+        for (int h = 0; h < hours; h++) {
+            int hour = constraints.getCheckoutStartTime() + h;
+            timeSlices[h] = context.addTimeSlice(hour);
+            int count = Math.min(trafficPlan.checkoutsAt(hour, occupiedRooms), remainingRooms);
+            checkouts[h] = apportion(count, occupied, remainingRooms);
+            remainingRooms -= count;
+        }
+        long[] seeds = seeds(rand, shards.size());
+
+        List<PickupRequests> requests = runShards(shards.size(), shard -> {
+            Building building = shards.get(shard);
+            OccupantTable occupants = context.getShardOccupants().get(shard).copy();
+            RandomGenerator shardRand = new SplittableRandom(seeds[shard]);
+            PickupRequests shardRequests = new PickupRequests();
+            for (int h = 0; h < hours; h++) {
+                for (int j = 0; j < checkouts[h][shard]; j++) {
+                    Room room = building.getRandomOccupiedRoom(shardRand);
+                    int floor = occupants.checkOut(room.getRoomNumber());
+                    building.checkOut(room);
+                    MoveRequest.validate(floor, 1);
+                    shardRequests.add(timeSlices[h], floor, 1);
+                }
+            }
+            return shardRequests;
+        });
+
+        PickupRequests pickupRequests = context.getPickupRequests();
+        int[] sizes = sizes(pickupRequests, timeSlices);
+        requests.forEach(pickupRequests::addAll);
+        // Shards are appended in floor order, scattering mixes their checkouts within each time slice.
+        scatter(pickupRequests, timeSlices, sizes, rand);
+    }
+
+    /**
+     * Splits {@code count} between the shards in proportion to {@code weights}, rounding on the running total so the
+     * shares add up to {@code count} exactly. Each shard's weight is reduced by its share.
+     */
+    static int[] apportion(int count, int[] weights, int totalWeight) {
+        int[] shares = new int[weights.length];
+        if (count == 0) {
+            return shares;
+        }
+        long runningWeight = 0;
+        int assigned = 0;
+        for (int shard = 0; shard < weights.length; shard++) {
+            runningWeight += weights[shard];
+            int runningShare = (int) (count * runningWeight / totalWeight);
+            shares[shard] = runningShare - assigned;
+            assigned = runningShare;
+            weights[shard] -= shares[shard];
+        }
+        return shares;
+    }
+
+    /**
+     * Runs every shard on the common fork-join pool.
+     * @return the result of each shard, in shard order.
+     */
+    private static <T> List<T> runShards(int shardCount, IntFunction<T> shard) {
+        return IntStream.range(0, shardCount)
+                .parallel()
+                .mapToObj(shard)
+                .toList();
+    }
+
+    /**
+     * Draws a seed for every shard, in shard order.
+     */
+    private static long[] seeds(RandomGenerator rand, int shardCount) {
+        long[] seeds = new long[shardCount];
+        for (int shard = 0; shard < shardCount; shard++) {
+            seeds[shard] = rand.nextLong();
+        }
+        return seeds;
+    }
+
+    private static int[] sizes(PickupRequests pickupRequests, int[] timeSlices) {
+        int[] sizes = new int[timeSlices.length];
+        for (int i = 0; i < timeSlices.length; i++) {
+            sizes[i] = pickupRequests.size(timeSlices[i]);
+        }
+        return sizes;
+    }
+
+    private static void scatter(PickupRequests pickupRequests, int[] timeSlices, int[] sizes, RandomGenerator rand) {
+        for (int i = 0; i < timeSlices.length; i++) {
+            if (pickupRequests.contains(timeSlices[i])) {
+                pickupRequests.scatter(timeSlices[i], sizes[i], rand);
+            }
+        }
+    }
+
+    private record LeaveRequests(PickupRequests leaves, PickupRequests returns) {
+    }
+}
@@ -0,0 +1,155 @@
+package org.base.scenario.service;
+
+import org.base.scenario.metrics.GenerationMetrics;
+import org.base.scenario.metrics.StageTimer;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.random.RandomGenerator;
+
+/**
+ * Runs an ordered list of {@link ScenarioStage}s against a scenario.
+ * <p>
+ * A stage waits for every earlier stage it conflicts with, that is when one of the two writes a resource the other
+ * reads or writes. Stages without a conflict run concurrently on the fork-join pool. Each stage gets its own random
+ * stream, split in pipeline order before any stage runs, so the scenario is the same whether the stages run
+ * sequentially or in parallel. The end-to-end wall time of a run counts towards the scenario's total, the stages'
+ * own wall times overlap when they run concurrently.
+ */
+class StagePipeline {
+    private final List<ScenarioStage> stages;
+    // Indexes of the earlier stages each stage waits for.
+    private final List<int[]> dependencies = new ArrayList<>();
+
+    StagePipeline(List<ScenarioStage> stages) {
+        this.stages = List.copyOf(stages);
+        for (int i = 0; i < this.stages.size(); i++) {
+            List<Integer> waitsFor = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                if (conflict(this.stages.get(j), this.stages.get(i))) {
+                    waitsFor.add(j);
+                }
+            }
+            dependencies.add(waitsFor.stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+
+    List<ScenarioStage> getStages() {
+        return stages;
+    }
+
+    /**
+     * @return the stages that stage {@code index} waits for.
+     */
+    List<ScenarioStage> getDependencies(int index) {
+        List<ScenarioStage> waitsFor = new ArrayList<>();
+        for (int dependency : dependencies.get(index)) {
+            waitsFor.add(stages.get(dependency));
+        }
+        return Collections.unmodifiableList(waitsFor);
+    }
+
+    /**
+     * @return the stages that read {@code resource} and the stages that wait for one of them, directly or not.
+     */
+    BitSet dependentsOf(StageResource resource) {
+        BitSet dependents = new BitSet(stages.size());
+        for (int i = 0; i < stages.size(); i++) {
+            if (stages.get(i).getReads().contains(resource)) {
+                dependents.set(i);
+                continue;
+            }
+            for (int dependency : dependencies.get(i)) {
+                if (dependents.get(dependency)) {
+                    dependents.set(i);
+                    break;
+                }
+            }
+        }
+        return dependents;
+    }
+
+    void run(ScenarioContext context, GenerationMetrics metrics, boolean parallel) {
+        BitSet all = new BitSet(stages.size());
+        all.set(0, stages.size());
+        run(context, metrics, parallel, all);
+    }
+
+    /**
+     * Runs the selected stages only, each with the random stream it gets in a full run. The context must already hold
+     * the results of the stages that are not selected and that a selected stage waits for.
+     */
+    void run(ScenarioContext context, GenerationMetrics metrics, boolean parallel, BitSet selected) {
+        long start = System.nanoTime();
+        try {
+            runStages(context, metrics, parallel, selected);
+        } finally {
+            metrics.addWallNanos(System.nanoTime() - start);
+        }
+    }
+
+    private void runStages(ScenarioContext context, GenerationMetrics metrics, boolean parallel, BitSet selected) {
+        RandomGenerator[] randoms = new RandomGenerator[stages.size()];
+        for (int i = 0; i < randoms.length; i++) {
+            randoms[i] = context.nextRandom();
+        }
+
+        if (!parallel) {
+            for (int i = selected.nextSetBit(0); i >= 0 && i < stages.size(); i = selected.nextSetBit(i + 1)) {
+                apply(stages.get(i), context, randoms[i], metrics);
+            }
+            return;
+        }
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>(stages.size());
+        for (int i = 0; i < stages.size(); i++) {
+            if (!selected.get(i)) {
+                futures.add(CompletableFuture.completedFuture(null));
+                continue;
+            }
+            ScenarioStage stage = stages.get(i);
+            RandomGenerator rand = randoms[i];
+            CompletableFuture<?>[] waitsFor = new CompletableFuture<?>[dependencies.get(i).length];
+            for (int j = 0; j < waitsFor.length; j++) {
+                waitsFor[j] = futures.get(dependencies.get(i)[j]);
+            }
+            futures.add(CompletableFuture.allOf(waitsFor)
+                    .thenRunAsync(() -> apply(stage, context, rand, metrics), ForkJoinPool.commonPool()));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static void apply(ScenarioStage stage, ScenarioContext context, RandomGenerator rand, GenerationMetrics metrics) {
+        // Request counts of stages that run concurrently include the requests the other stages add meanwhile.
+        StageTimer timer = metrics.startConcurrent(stage.getName(), context.getPickupRequests().getRequestCount());
+        stage.apply(context, rand);
+        timer.stop(context.getPickupRequests().getRequestCount());
+    }
+
+    private static boolean conflict(ScenarioStage earlier, ScenarioStage later) {
+        return overlap(earlier.getWrites(), later.getReads()) || overlap(earlier.getWrites(), later.getWrites()) ||
+               overlap(earlier.getReads(), later.getWrites());
+    }
+
+    private static boolean overlap(Set<StageResource> a, Set<StageResource> b) {
+        for (StageResource resource : a) {
+            if (b.contains(resource)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
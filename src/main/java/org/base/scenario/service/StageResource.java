@@ -0,0 +1,19 @@
+package org.base.scenario.service;
+
+/**
+ * Parts of a {@link ScenarioContext} a {@link ScenarioStage} reads or writes. Stages that do not write anything the
+ * other one uses can run concurrently.
+ */
+enum StageResource {
+    BUILDING,
+    // Time slices between the check-in start and end time.
+    CHECKIN_SLICES,
+    // Time slices after the check-in time slices, checkouts and late returns.
+    LATER_SLICES,
+    RETURNS,
+    // The occupants of each shard as booked during check-in. Stages that move occupants around work on a copy.
+    OCCUPANTS,
+    // Not part of the context but the checkout times of the constraints, which no stage writes. A sweep runs the stages
+    // that do not depend on it once for every checkout window, see ScenarioSweep.
+    CHECKOUT_WINDOW
+}
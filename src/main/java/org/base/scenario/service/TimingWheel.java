@@ -0,0 +1,125 @@
+package org.base.scenario.service;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Deferred requests bucketed by the time slice they are due in.
+ * <p>
+ * The wheel is a ring of buckets indexed by {@code timeSlice & mask}, each holding the packed records of one time
+ * slice. Time slices are drained in increasing order and a drained bucket is reused for a later time slice, so the
+ * wheel only grows with how far ahead requests are scheduled, not with the length of the scenario. Scheduling further
+ * ahead than the ring covers doubles it.
+ */
+class TimingWheel {
+    private static final int INITIAL_BUCKET_CAPACITY = 16;
+
+    private long[][] buckets;
+    private int[] sizes;
+    private int mask;
+    // The earliest time slice that can still be scheduled or drained.
+    private int currentTimeSlice;
+    private long size;
+
+    TimingWheel() {
+        this(16);
+    }
+
+    TimingWheel(int initialSpan) {
+        int span = Integer.highestOneBit(Math.max(initialSpan - 1, 1)) << 1;
+        this.buckets = new long[span][];
+        this.sizes = new int[span];
+        this.mask = span - 1;
+        Arrays.fill(buckets, new long[0]);
+    }
+
+    /**
+     * @return an independent copy of the wheel, with the same records scheduled.
+     */
+    TimingWheel copy() {
+        TimingWheel copy = new TimingWheel(buckets.length);
+        for (int i = 0; i < buckets.length; i++) {
+            copy.buckets[i] = Arrays.copyOf(buckets[i], sizes[i]);
+        }
+        System.arraycopy(sizes, 0, copy.sizes, 0, sizes.length);
+        copy.currentTimeSlice = currentTimeSlice;
+        copy.size = size;
+        return copy;
+    }
+
+    int getCurrentTimeSlice() {
+        return currentTimeSlice;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    long size() {
+        return size;
+    }
+
+    int size(int timeSlice) {
+        return timeSlice < currentTimeSlice || timeSlice - currentTimeSlice > mask ? 0 : sizes[timeSlice & mask];
+    }
+
+    void schedule(int timeSlice, long record) {
+        if (timeSlice < currentTimeSlice) {
+            throw new IllegalArgumentException("Time slice " + timeSlice + " is before the current time slice " + currentTimeSlice);
+        }
+        if (timeSlice - currentTimeSlice > mask) {
+            grow(timeSlice - currentTimeSlice + 1);
+        }
+        int bucket = timeSlice & mask;
+        int bucketSize = sizes[bucket];
+        if (bucketSize == buckets[bucket].length) {
+            buckets[bucket] = Arrays.copyOf(buckets[bucket], Math.max(INITIAL_BUCKET_CAPACITY, bucketSize * 2));
+        }
+        buckets[bucket][bucketSize] = record;
+        sizes[bucket] = bucketSize + 1;
+        size++;
+    }
+
+    /**
+     * Hands the records due in the time slice to the consumer in the order they were scheduled, and moves the wheel
+     * past it. Earlier time slices that were never drained must be empty.
+     */
+    void drain(int timeSlice, LongConsumer consumer) {
+        advanceTo(timeSlice);
+        int bucket = timeSlice & mask;
+        long[] records = buckets[bucket];
+        int bucketSize = sizes[bucket];
+        sizes[bucket] = 0;
+        size -= bucketSize;
+        currentTimeSlice = timeSlice + 1;
+        for (int i = 0; i < bucketSize; i++) {
+            consumer.accept(records[i]);
+        }
+    }
+
+    private void advanceTo(int timeSlice) {
+        if (timeSlice < currentTimeSlice) {
+            throw new IllegalArgumentException("Time slice " + timeSlice + " was already drained");
+        }
+        for (int i = currentTimeSlice; i < timeSlice && i - currentTimeSlice <= mask; i++) {
+            if (sizes[i & mask] > 0) {
+                throw new IllegalStateException("Time slice " + i + " still has " + sizes[i & mask] + " requests");
+            }
+        }
+    }
+
+    private void grow(int span) {
+        int length = Integer.highestOneBit(span - 1) << 1;
+        long[][] grownBuckets = new long[length][];
+        int[] grownSizes = new int[length];
+        Arrays.fill(grownBuckets, new long[0]);
+        for (int i = 0; i < buckets.length; i++) {
+            int timeSlice = currentTimeSlice + i;
+            grownBuckets[timeSlice & (length - 1)] = buckets[timeSlice & mask];
+            grownSizes[timeSlice & (length - 1)] = sizes[timeSlice & mask];
+        }
+        buckets = grownBuckets;
+        sizes = grownSizes;
+        mask = length - 1;
+    }
+}
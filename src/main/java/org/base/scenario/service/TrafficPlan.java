@@ -0,0 +1,188 @@
+package org.base.scenario.service;
+
+import org.base.scenario.model.Constraints;
+import org.base.scenario.model.FloorDistribution;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Traffic rules shared by the in-memory pipeline and the {@link ScenarioGenerator}, so both produce the same kind of
+ * scenario.
+ */
+class TrafficPlan {
+    private static final int MAX_LEAVE_DRAWS = 16;
+
+    private final Constraints constraints;
+    private final int targetOccupancy;
+    private final int checkinsPerPrimeTimeHour;
+    private final int checkinsPerNonPrimeTimeHour;
+    private final double[] checkinWeights;
+    // The number of check-ins each floor can take.
+    private final long[] checkinCapacity;
+    private final AliasTable leaveDestinations;
+
+    TrafficPlan(Constraints constraints) {
+        validate(constraints);
+        this.constraints = constraints;
+
+        // TODO: Maybe move target occupancy to property file.
+        //    Occupancy could be refactored to allow for a queue of checkins after the building is full.
+        //    A queue would show the benefit of increasing the floors or rooms per floor.
+        this.targetOccupancy = (int) Math.round(constraints.getNumberOfFloors() * constraints.getNumberOfRoomsPerFloor() * .8);
+
+        // TODO: Maybe move % of checkins during prime time to property file.
+        //    40% of the checkins will happen during prime time (15:00 - 17:00)
+        int checkinsDuringPrimeTime = (int) Math.round(targetOccupancy * .4);
+        // This could be slightly randomized for more interesting data.
+        this.checkinsPerPrimeTimeHour = Math.round((float) checkinsDuringPrimeTime / 3);
+
+        int remainingCheckins = targetOccupancy - checkinsDuringPrimeTime;
+        // This could be slightly randomized for more interesting data.
+        this.checkinsPerNonPrimeTimeHour = Math.round((float) remainingCheckins / (constraints.getCheckinEndTime() - constraints.getCheckinStartTime() - 3));
+
+        long[] checkins = checkinFloorCounts();
+        this.checkinWeights = withoutLobby(constraints.getCheckinDestinations().weights(constraints.getNumberOfFloors(), checkins));
+        this.checkinCapacity = checkinCapacity(checkins);
+        this.leaveDestinations = new AliasTable(constraints.getLeaveDestinations().weights(constraints.getNumberOfFloors(), checkins));
+    }
+
+    /**
+     * Rejects constraints the plan cannot schedule, before anything is generated.
+     */
+    static void validate(Constraints constraints) {
+        if (constraints.getNumberOfFloors() < 2 || constraints.getNumberOfRoomsPerFloor() < 1) {
+            throw new IllegalArgumentException("A building needs at least 2 floors and 1 room per floor");
+        }
+        if (constraints.getMaxOccupantsPerRoom() < 1) {
+            throw new IllegalArgumentException("Max occupants per room must be at least 1: " + constraints.getMaxOccupantsPerRoom());
+        }
+        // The hours outside prime time share the rest of the check-ins and checkouts, there has to be at least one.
+        if (constraints.getCheckinEndTime() - constraints.getCheckinStartTime() < 4) {
+            throw new IllegalArgumentException("Check-in must span at least 4 hours, 3 of them prime time: " +
+                                               constraints.getCheckinStartTime() + " to " + constraints.getCheckinEndTime());
+        }
+        if (constraints.getCheckoutEndTime() - constraints.getCheckoutStartTime() < 3) {
+            throw new IllegalArgumentException("Checkout must span at least 3 hours, 2 of them prime time: " +
+                                               constraints.getCheckoutStartTime() + " to " + constraints.getCheckoutEndTime());
+        }
+        // Time slices are registered by hour, checkouts in a check-in hour would land in a check-in time slice.
+        if (constraints.getCheckoutStartTime() <= constraints.getCheckinEndTime() &&
+            constraints.getCheckinStartTime() <= constraints.getCheckoutEndTime()) {
+            throw new IllegalArgumentException("Checkout hours cannot overlap check-in hours");
+        }
+        // Occupants leaving in the last check-in time slices return before the check-in end time, see returnTime.
+        if (constraints.getCheckinStartTime() < 3) {
+            throw new IllegalArgumentException("Check-in cannot start before hour 3: " + constraints.getCheckinStartTime());
+        }
+    }
+
+    int getTargetOccupancy() {
+        return targetOccupancy;
+    }
+
+    int checkinsAt(int hour) {
+        // TODO: Maybe move prime time range to property file.
+        boolean isBusyTime = hour == 15 || hour == 16 || hour == 17;
+        return isBusyTime ? checkinsPerPrimeTimeHour : checkinsPerNonPrimeTimeHour;
+    }
+
+    int checkoutsAt(int hour, int occupiedRooms) {
+        int checkoutsDuringPrimeTime = (int) Math.round(occupiedRooms * .5);
+        int checkoutsPerPrimeTimeHour = Math.round((float) checkoutsDuringPrimeTime / 2);
+
+        int remainingCheckouts = occupiedRooms - checkoutsDuringPrimeTime;
+        int checkoutsPerNonPrimeTimeHour = Math.round((float) remainingCheckouts / (constraints.getCheckoutEndTime() - constraints.getCheckoutStartTime() - 2));
+
+        boolean isBusyTime = hour == 7 || hour == 8;
+        return isBusyTime ? checkoutsPerPrimeTimeHour : checkoutsPerNonPrimeTimeHour;
+    }
+
+    /**
+     * @return the number of occupants that check into a room together, up to {@code constraints.max-occupants-per-room}.
+     */
+    int partySize(RandomGenerator rand) {
+        return rand.nextInt(constraints.getMaxOccupantsPerRoom()) + 1;
+    }
+
+    /**
+     * @return the share of a time slice's occupants, in percent, that leave during the next time slice.
+     */
+    int leavePercentage(RandomGenerator rand) {
+        return rand.nextInt(20) + 20;
+    }
+
+    /**
+     * @return a sampler for the floors the check-ins of one scenario go to, from {@code constraints.checkin-destinations}.
+     * It never picks the lobby, nor a floor that already got as many check-ins as it has rooms.
+     */
+    CheckinDestinations checkinDestinations() {
+        return new CheckinDestinations(checkinWeights, checkinCapacity);
+    }
+
+    /**
+     * Picks where an occupant goes when leaving {@code leaveFloor} from {@code constraints.leave-destinations}.
+     */
+    int leaveDestination(int leaveFloor, RandomGenerator rand) {
+        // Draws again when the occupant would stay on its floor, which takes more than a few draws only when that
+        // floor holds most of the weight.
+        for (int draw = 0; draw < MAX_LEAVE_DRAWS; draw++) {
+            int floor = leaveDestinations.next(rand);
+            if (floor != leaveFloor) {
+                return floor;
+            }
+        }
+        return leaveFloor == 1 ? constraints.getNumberOfFloors() : 1;
+    }
+
+    /**
+     * Counts the check-ins each floor receives. The building fills its rooms in order from floor 2, so the counts
+     * follow from the check-in schedule alone.
+     */
+    long[] checkinFloorCounts() {
+        int rooms = constraints.getNumberOfRoomsPerFloor();
+        long freeRooms = (long) (constraints.getNumberOfFloors() - 1) * rooms;
+        long checkins = 0;
+        for (int i = constraints.getCheckinStartTime(); i <= constraints.getCheckinEndTime() && checkins < freeRooms; i++) {
+            checkins = Math.min(checkins + checkinsAt(i), freeRooms);
+        }
+        long[] counts = new long[constraints.getNumberOfFloors() + 1];
+        for (int floor = 2; floor <= constraints.getNumberOfFloors() && checkins > 0; floor++) {
+            counts[floor] = Math.min(rooms, checkins);
+            checkins -= counts[floor];
+        }
+        return counts;
+    }
+
+    /**
+     * {@link FloorDistribution#OCCUPANCY} sends each floor exactly the check-ins it receives, like a shuffle of the
+     * check-ins' floors. Other distributions can send a floor up to one check-in per room.
+     */
+    private long[] checkinCapacity(long[] checkins) {
+        if (constraints.getCheckinDestinations() == FloorDistribution.OCCUPANCY) {
+            return checkins;
+        }
+        long[] capacity = new long[constraints.getNumberOfFloors() + 1];
+        Arrays.fill(capacity, 2, capacity.length, constraints.getNumberOfRoomsPerFloor());
+        return capacity;
+    }
+
+    /**
+     * Check-ins start in the lobby, a check-in destination is on another floor. Falls back to the floors above the
+     * lobby when the distribution has nothing else, as {@link FloorDistribution#OCCUPANCY} does when nobody checks in.
+     */
+    private double[] withoutLobby(double[] weights) {
+        weights[1] = 0;
+        if (Arrays.stream(weights).allMatch(weight -> weight == 0)) {
+            Arrays.fill(weights, 2, weights.length, 1);
+        }
+        return weights;
+    }
+
+    /**
+     * @param earliestTime the first time slice the occupant may return in.
+     */
+    int returnTime(int earliestTime, RandomGenerator rand) {
+        return rand.nextInt(constraints.getCheckinEndTime() - earliestTime) + earliestTime;
+    }
+}
@@ -0,0 +1,27 @@
+package org.base.scenario;
+
+import org.base.scenario.io.ScenarioFormat;
+import org.base.scenario.model.Constraints;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ScenarioLauncherTest {
+
+    @Test
+    void argumentsOverrideApplicationProperties() {
+        Constraints constraints = ScenarioLauncher.bind(ScenarioLauncher.properties(new String[]{
+                "--constraints.number-of-floors=30", "--constraints.output-format=binary", "--spring.main.banner-mode=off"}));
+        assertEquals(30, constraints.getNumberOfFloors());
+        assertEquals(ScenarioFormat.BINARY, constraints.getOutputFormat());
+        // Read from application.properties.
+        assertEquals(20, constraints.getNumberOfRoomsPerFloor());
+        assertEquals(24, constraints.getCheckinEndTime());
+    }
+
+    @Test
+    void rejectsArgumentsWithoutValue() {
+        assertThrows(IllegalArgumentException.class, () -> ScenarioLauncher.properties(new String[]{"constraints.seed"}));
+    }
+}
@@ -0,0 +1,60 @@
+package org.base.scenario.diagnostics;
+
+import org.base.scenario.model.Constraints;
+import org.base.scenario.model.PickupRequests;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiagnosticsTest {
+
+    @Test
+    void fullModeLogsEveryRequest() {
+        assertEquals(1000, countRequestLines(DiagnosticsMode.FULL, 10));
+    }
+
+    @Test
+    void sampledModeLogsEveryNthRequest() {
+        assertEquals(100, countRequestLines(DiagnosticsMode.SAMPLED, 10));
+        assertEquals(8, countRequestLines(DiagnosticsMode.SAMPLED, 128));
+    }
+
+    @Test
+    void summaryModeLogsOneLine() {
+        String output = log(DiagnosticsMode.SUMMARY, 10);
+        assertEquals(1, output.lines().count());
+        assertTrue(output.startsWith("Scenario 7: 1000 requests in 10 time slices, up to 100 per time slice"));
+    }
+
+    @Test
+    void offModeLogsNothing() {
+        assertEquals("", log(DiagnosticsMode.OFF, 10));
+    }
+
+    private static long countRequestLines(DiagnosticsMode mode, int sampleRate) {
+        return log(mode, sampleRate).lines().filter(line -> line.startsWith("  MoveRequest")).count();
+    }
+
+    private static String log(DiagnosticsMode mode, int sampleRate) {
+        Constraints constraints = new Constraints();
+        constraints.setDiagnostics(mode);
+        constraints.setDiagnosticsSampleRate(sampleRate);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Diagnostics diagnostics = new Diagnostics(constraints, new PrintStream(bytes, true, StandardCharsets.UTF_8))) {
+            PickupRequests pickupRequests = new PickupRequests();
+            for (int timeSlice = 1; timeSlice <= 10; timeSlice++) {
+                for (int i = 0; i < 100; i++) {
+                    pickupRequests.add(timeSlice, 1, i % 9 + 2);
+                }
+            }
+            diagnostics.logPickupRequests(pickupRequests);
+            diagnostics.logSummary(7L, pickupRequests);
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+}
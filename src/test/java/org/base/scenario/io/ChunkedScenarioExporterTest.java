@@ -0,0 +1,130 @@
+package org.base.scenario.io;
+
+import org.base.scenario.model.PickupRequests;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkedScenarioExporterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void singleFileMatchesSequentialWrite() throws IOException {
+        PickupRequests requests = requests();
+        for (ScenarioFormat format : List.of(ScenarioFormat.TEXT, ScenarioFormat.BINARY)) {
+            Path expected = dir.resolve("expected" + format.getExtension());
+            try (ScenarioWriter writer = ScenarioWriter.open(expected, format)) {
+                requests.forEach(writer::write);
+            }
+
+            Path path = dir.resolve("chunked" + format.getExtension());
+            ExportManifest manifest = new ChunkedScenarioExporter(format, 4, false).export(path, requests);
+
+            assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(path), format.name());
+            assertEquals(4, manifest.chunks().size());
+            assertEquals(requests.getRequestCount(), manifest.records());
+            long offset = 0;
+            for (ExportManifest.Chunk chunk : manifest.chunks()) {
+                assertEquals(offset, chunk.offset());
+                offset += chunk.bytes();
+            }
+            assertEquals(Files.size(path), offset);
+            assertTrue(Files.exists(ExportManifest.pathFor(path)));
+        }
+    }
+
+    @Test
+    void partFilesHoldConsecutiveTimeSlices() {
+        PickupRequests requests = requests();
+        Path path = dir.resolve("scenario.bin");
+        ExportManifest manifest = new ChunkedScenarioExporter(ScenarioFormat.BINARY, 3, true).export(path, requests);
+
+        List<int[]> read = new ArrayList<>();
+        int nextTimeSlice = 0;
+        for (ExportManifest.Chunk chunk : manifest.chunks()) {
+            assertTrue(chunk.firstTimeSlice() >= nextTimeSlice);
+            nextTimeSlice = chunk.lastTimeSlice() + 1;
+            try (BinaryScenarioReader reader = BinaryScenarioReader.open(dir.resolve(chunk.file()))) {
+                assertEquals(chunk.records(), reader.getRecordCount());
+                reader.read((timeSlice, currentFloor, destinationFloor) ->
+                        read.add(new int[]{timeSlice, currentFloor, destinationFloor}));
+            }
+        }
+
+        List<int[]> expected = new ArrayList<>();
+        requests.forEach((timeSlice, currentFloor, destinationFloor) ->
+                expected.add(new int[]{timeSlice, currentFloor, destinationFloor}));
+        assertEquals(3, manifest.chunks().size());
+        assertEquals("scenario.part-0001.bin", manifest.chunks().get(0).file());
+        assertEquals(expected.size(), read.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), read.get(i));
+        }
+    }
+
+    @Test
+    void neverSplitsIntoEmptyChunks() {
+        PickupRequests requests = new PickupRequests();
+        requests.add(2, 1, 5);
+        requests.add(4, 5, 1);
+
+        List<int[]> ranges = new ChunkedScenarioExporter(ScenarioFormat.TEXT, 8, false).split(requests);
+
+        assertEquals(2, ranges.size());
+        assertArrayEquals(new int[]{2, 2}, ranges.get(0));
+        assertArrayEquals(new int[]{4, 4}, ranges.get(1));
+    }
+
+    @Test
+    void exportsEmptyScenarioAsOneChunkWithHeader() throws IOException {
+        PickupRequests emptySlices = new PickupRequests();
+        for (int timeSlice = 1; timeSlice <= 5; timeSlice++) {
+            emptySlices.fill(timeSlice, PickupRequests.pack(0, 0), 0);
+        }
+        for (PickupRequests requests : List.of(new PickupRequests(), emptySlices)) {
+            for (boolean partFiles : List.of(false, true)) {
+                Path path = dir.resolve("empty.bin");
+                ExportManifest manifest = new ChunkedScenarioExporter(ScenarioFormat.BINARY, 4, partFiles).export(path, requests);
+
+                assertEquals(1, manifest.chunks().size());
+                assertEquals(0, manifest.records());
+                Path file = dir.resolve(manifest.chunks().get(0).file());
+                try (BinaryScenarioReader reader = BinaryScenarioReader.open(file)) {
+                    assertEquals(0, reader.getRecordCount());
+                }
+
+                Path expected = dir.resolve("expected.bin");
+                try (ScenarioWriter writer = ScenarioWriter.open(expected, ScenarioFormat.BINARY)) {
+                    requests.forEach(writer::write);
+                }
+                assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(file));
+            }
+        }
+    }
+
+    @Test
+    void compressedChunksNeedPartFiles() {
+        assertThrows(IllegalArgumentException.class, () -> new ChunkedScenarioExporter(ScenarioFormat.COMPRESSED, 2, false));
+    }
+
+    private static PickupRequests requests() {
+        PickupRequests requests = new PickupRequests();
+        for (int i = 0; i < 50_000; i++) {
+            int timeSlice = 1 + i % 37;
+            requests.add(timeSlice, 1 + i % 20, 1 + (i * 7) % 20);
+        }
+        return requests;
+    }
+}
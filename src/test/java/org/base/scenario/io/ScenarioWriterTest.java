@@ -0,0 +1,97 @@
+package org.base.scenario.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScenarioWriterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void textMatchesFormattedOutput() throws IOException {
+        int[][] requests = {{1, 1, 7}, {1, 0, 0}, {12, 10, 1}, {Integer.MAX_VALUE, -3, Integer.MIN_VALUE}};
+        Path path = dir.resolve("scenario.txt");
+        try (ScenarioWriter writer = ScenarioWriter.open(path, ScenarioFormat.TEXT)) {
+            for (int[] request : requests) {
+                writer.write(request[0], request[1], request[2]);
+            }
+        }
+
+        StringBuilder expected = new StringBuilder();
+        for (int[] request : requests) {
+            expected.append(String.format("%s, %s, %s", request[0], request[1], request[2])).append(System.lineSeparator());
+        }
+        assertEquals(expected.toString(), Files.readString(path, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void binaryRoundTrip() {
+        Path path = dir.resolve("scenario.bin");
+        int count = 250_000; // Spans several buffer refills.
+        try (ScenarioWriter writer = ScenarioWriter.open(path, ScenarioFormat.BINARY)) {
+            for (int i = 0; i < count; i++) {
+                writer.write(i / 100, i % 10, i % 7);
+            }
+        }
+
+        List<int[]> read = new ArrayList<>();
+        try (BinaryScenarioReader reader = BinaryScenarioReader.open(path)) {
+            assertEquals(count, reader.getRecordCount());
+            assertEquals(count, reader.read((timeSlice, currentFloor, destinationFloor) ->
+                    read.add(new int[]{timeSlice, currentFloor, destinationFloor})));
+        }
+        for (int i = 0; i < count; i++) {
+            int[] request = read.get(i);
+            assertEquals(i / 100, request[0]);
+            assertEquals(i % 10, request[1]);
+            assertEquals(i % 7, request[2]);
+        }
+    }
+
+    @Test
+    void compressedRoundTrip() throws IOException {
+        List<int[]> requests = new ArrayList<>();
+        for (int timeSlice = 1; timeSlice <= 2_000; timeSlice++) {
+            for (int i = 0; i < 50; i++) {
+                // Runs of padding between requests, as normalizing leaves them.
+                requests.add(i % 3 == 0 ? new int[]{timeSlice, 1 + i % 20, 1} : new int[]{timeSlice, 0, 0});
+            }
+        }
+        requests.add(new int[]{7, Integer.MAX_VALUE, Integer.MIN_VALUE});
+        requests.add(new int[]{-4, -1, 3});
+
+        Path path = dir.resolve("scenario.scnz");
+        try (ScenarioWriter writer = ScenarioWriter.open(path, ScenarioFormat.COMPRESSED)) {
+            for (int[] request : requests) {
+                writer.write(request[0], request[1], request[2]);
+            }
+        }
+
+        List<int[]> read = new ArrayList<>();
+        try (CompressedScenarioReader reader = CompressedScenarioReader.open(path)) {
+            assertEquals(requests.size(), reader.read((timeSlice, currentFloor, destinationFloor) ->
+                    read.add(new int[]{timeSlice, currentFloor, destinationFloor})));
+        }
+        for (int i = 0; i < requests.size(); i++) {
+            assertArrayEquals(requests.get(i), read.get(i));
+        }
+
+        Path text = dir.resolve("scenario.txt");
+        try (ScenarioWriter writer = ScenarioWriter.open(text, ScenarioFormat.TEXT)) {
+            requests.forEach(request -> writer.write(request[0], request[1], request[2]));
+        }
+        assertTrue(Files.size(path) * 20 < Files.size(text));
+    }
+}
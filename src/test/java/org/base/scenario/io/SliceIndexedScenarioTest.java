@@ -0,0 +1,90 @@
+package org.base.scenario.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SliceIndexedScenarioTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsEveryTimeSliceOnItsOwn() {
+        for (ScenarioFormat format : List.of(ScenarioFormat.TEXT, ScenarioFormat.BINARY)) {
+            Path path = dir.resolve("scenario" + format.getExtension());
+            // Time slices 2, 4, ... with 0 to 9 requests each, spanning several buffer drains.
+            List<int[]> written = new ArrayList<>();
+            try (ScenarioWriter writer = ScenarioWriter.open(path, format, true)) {
+                for (int timeSlice = 2; timeSlice <= 200_000; timeSlice += 2) {
+                    for (int i = 0; i < timeSlice % 10; i++) {
+                        int[] request = {timeSlice, i, timeSlice % 97};
+                        writer.write(request[0], request[1], request[2]);
+                        written.add(request);
+                    }
+                }
+            }
+            assertTrue(Files.exists(SliceIndex.pathFor(path)));
+
+            try (SliceIndexedScenario scenario = SliceIndexedScenario.open(path)) {
+                assertEquals(format, scenario.getFormat());
+                List<int[]> read = new ArrayList<>();
+                // Out of order, to show a time slice does not depend on the ones before it.
+                int[] timeSlices = scenario.getTimeSlices();
+                for (int i = timeSlices.length - 1; i >= 0; i--) {
+                    List<int[]> slice = new ArrayList<>();
+                    scenario.read(timeSlices[i], (timeSlice, currentFloor, destinationFloor) ->
+                            slice.add(new int[]{timeSlice, currentFloor, destinationFloor}));
+                    assertEquals(scenario.size(timeSlices[i]), slice.size());
+                    read.addAll(0, slice);
+                }
+                assertEquals(written.size(), read.size());
+                for (int i = 0; i < written.size(); i++) {
+                    assertArrayEquals(written.get(i), read.get(i));
+                }
+
+                assertEquals(0, scenario.size(3));
+                assertFalse(scenario.slice(3).hasRemaining());
+            }
+        }
+    }
+
+    @Test
+    void binarySliceIsAViewOfTheRecords() {
+        Path path = dir.resolve("scenario.bin");
+        try (ScenarioWriter writer = ScenarioWriter.open(path, ScenarioFormat.BINARY, true)) {
+            writer.write(1, 1, 5);
+            writer.write(1, 1, 6);
+            writer.write(3, 5, 1);
+        }
+        try (SliceIndexedScenario scenario = SliceIndexedScenario.open(path)) {
+            assertEquals(2 * BinaryScenarioWriter.RECORD_SIZE, scenario.slice(1).remaining());
+            assertEquals(BinaryScenarioWriter.RECORD_SIZE, scenario.slice(3).remaining());
+            assertEquals(5, scenario.slice(3).getInt(Integer.BYTES));
+        }
+    }
+
+    @Test
+    void rejectsTimeSlicesOutOfOrder() {
+        Path path = dir.resolve("scenario.txt");
+        ScenarioWriter writer = ScenarioWriter.open(path, ScenarioFormat.TEXT, true);
+        writer.write(2, 1, 5);
+        assertThrows(IllegalStateException.class, () -> writer.write(1, 1, 5));
+        writer.close();
+    }
+
+    @Test
+    void compressedScenariosHaveNoIndex() {
+        assertThrows(IllegalArgumentException.class, () -> ScenarioWriter.open(dir.resolve("scenario.scnz"), ScenarioFormat.COMPRESSED, true));
+    }
+}
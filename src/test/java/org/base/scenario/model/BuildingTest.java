@@ -0,0 +1,85 @@
+package org.base.scenario.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BuildingTest {
+
+    @Test
+    void checksInFromTheSecondFloorUntilFull() {
+        Building building = new Building(constraints(3, 2));
+        assertEquals(2, building.getFloorNumber(building.checkIn(1)));
+        assertEquals(2, building.getFloorNumber(building.checkIn(1)));
+        assertEquals(3, building.getNextFloorWithRoom().getFloorNumber());
+        assertEquals(3, building.getFloorNumber(building.checkIn(1)));
+        assertEquals(3, building.getFloorNumber(building.checkIn(1)));
+        assertFalse(building.hasFreeRoom());
+        assertNull(building.checkIn(1));
+        assertEquals(4, building.getOccupiedRoomCount());
+    }
+
+    @Test
+    void checksOutEveryOccupiedRoomOnce() {
+        Building building = new Building(constraints(10, 50));
+        while (building.checkIn(2) != null) {
+            // Fill the building.
+        }
+
+        SplittableRandom rand = new SplittableRandom(1);
+        Set<Integer> checkedOut = new HashSet<>();
+        while (building.getOccupiedRoomCount() > 0) {
+            Room room = building.getRandomOccupiedRoom(rand);
+            assertTrue(checkedOut.add(room.getRoomNumber()));
+            building.checkOut(room);
+            assertEquals(0, building.getOccupants(room));
+        }
+        assertEquals(450, checkedOut.size());
+        assertNull(building.getRandomOccupiedRoom(rand));
+
+        // Checked out rooms can be checked into again.
+        assertEquals(2, building.getFloorNumber(building.checkIn(1)));
+    }
+
+    @Test
+    void resetEmptiesTheBuilding() {
+        Building building = new Building(constraints(4, 3));
+        Room first = building.checkIn(3);
+        building.checkIn(1);
+        building.checkOut(first);
+        building.checkIn(2);
+
+        building.reset();
+
+        assertEquals(0, building.getOccupiedRoomCount());
+        assertTrue(building.getOccupiedRooms().isEmpty());
+        assertEquals(0, building.getOccupants(first));
+        assertEquals(first, building.checkIn(1));
+        assertEquals(8, building.getFreeRoomCount());
+    }
+
+    @Test
+    void buildingsOfTheSameShapeShareTheirLayout() {
+        BuildingLayout layout = BuildingLayout.of(constraints(10, 20));
+        assertSame(layout, new Building(constraints(10, 20)).getLayout());
+        assertSame(layout.getFloors().get(2), new Building(constraints(10, 20)).getFloors().get(2));
+        assertNotSame(layout, BuildingLayout.of(constraints(10, 21)));
+        assertEquals(5, BuildingLayout.of(constraints(10, 20), 3, 7).getFloors().size());
+    }
+
+    private static Constraints constraints(int floors, int roomsPerFloor) {
+        Constraints constraints = new Constraints();
+        constraints.setNumberOfFloors(floors);
+        constraints.setNumberOfRoomsPerFloor(roomsPerFloor);
+        return constraints;
+    }
+}
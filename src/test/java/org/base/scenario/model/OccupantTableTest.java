@@ -0,0 +1,98 @@
+package org.base.scenario.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OccupantTableTest {
+
+    @Test
+    void onlyOccupantsInTheirRoomCanLeave() {
+        OccupantTable occupants = new OccupantTable();
+        occupants.checkIn(7, 3, 2);
+        occupants.checkIn(8, 4, 1);
+        SplittableRandom rand = new SplittableRandom(1);
+
+        Set<Integer> left = new HashSet<>();
+        while (occupants.getPresentCount() > 0) {
+            int occupant = occupants.getRandomPresentOccupant(rand);
+            occupants.leave(occupant, 1);
+            assertTrue(left.add(occupant));
+            assertEquals(1, occupants.getLocation(occupant));
+        }
+        assertEquals(3, left.size());
+        assertEquals(-1, occupants.getRandomPresentOccupant(rand));
+        assertThrows(IllegalStateException.class, () -> occupants.leave(0, 2));
+
+        occupants.returnToRoom(1);
+        assertEquals(OccupantTable.IN_ROOM, occupants.getState(1));
+        assertEquals(3, occupants.getLocation(1));
+        assertEquals(1, occupants.getRandomPresentOccupant(rand));
+    }
+
+    @Test
+    void checksOutTheWholeParty() {
+        OccupantTable occupants = new OccupantTable();
+        int first = occupants.checkIn(5, 2, 3);
+        occupants.leave(first, 9);
+
+        assertEquals(2, occupants.checkOut(5));
+        assertEquals(0, occupants.getPresentCount());
+        for (int occupant = first; occupant < first + 3; occupant++) {
+            assertEquals(OccupantTable.CHECKED_OUT, occupants.getState(occupant));
+            assertEquals(5, occupants.getRoom(occupant));
+        }
+        // The occupant that was away stays checked out when its return comes due.
+        occupants.returnToRoom(first);
+        assertEquals(OccupantTable.CHECKED_OUT, occupants.getState(first));
+        assertThrows(IllegalStateException.class, () -> occupants.checkOut(5));
+
+        occupants.checkIn(5, 6, 1);
+        assertEquals(6, occupants.checkOut(5));
+    }
+
+    @Test
+    void bookedPartiesArriveInCheckinOrder() {
+        OccupantTable occupants = new OccupantTable();
+        occupants.book(12, 2, 2);
+        occupants.book(31, 3, 1);
+        assertEquals(2, occupants.getPartyCount());
+        assertEquals(0, occupants.getPresentCount());
+        assertEquals(OccupantTable.BOOKED, occupants.getState(0));
+
+        occupants.setFloor(0, 5);
+        occupants.setFloor(1, 5);
+        OccupantTable copy = occupants.copy();
+        occupants.arrive(2);
+        assertEquals(2, occupants.getPresentCount());
+        assertEquals(5, occupants.getLocation(1));
+        assertEquals(OccupantTable.BOOKED, occupants.getState(2));
+        assertThrows(IllegalStateException.class, () -> occupants.arrive(2));
+
+        // A party that checks out before it arrives stays checked out.
+        assertEquals(3, occupants.checkOut(31));
+        occupants.arrive(1);
+        assertEquals(OccupantTable.CHECKED_OUT, occupants.getState(2));
+        assertEquals(2, occupants.getPresentCount());
+
+        assertEquals(0, copy.getPresentCount());
+        assertEquals(5, copy.checkOut(12));
+    }
+
+    @Test
+    void growsPastItsInitialCapacity() {
+        OccupantTable occupants = new OccupantTable();
+        for (int room = 0; room < 1_000; room++) {
+            occupants.checkIn(room, room % 10 + 2, 4);
+        }
+        assertEquals(4_000, occupants.getOccupantCount());
+        assertEquals(4_000, occupants.getPresentCount());
+        assertEquals(11, occupants.getFloor(3_999));
+    }
+}
@@ -0,0 +1,86 @@
+package org.base.scenario.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class PickupRequestsTest {
+
+    @Test
+    void packsFloors() {
+        long record = PickupRequests.pack(7, 1);
+        assertEquals(7, PickupRequests.currentFloor(record));
+        assertEquals(1, PickupRequests.destinationFloor(record));
+        assertEquals(0, PickupRequests.pack(0, 0));
+    }
+
+    @Test
+    void keepsSparseTimeSlices() {
+        PickupRequests pickupRequests = new PickupRequests();
+        pickupRequests.add(3, 1, 4);
+        pickupRequests.add(40, 5, 1);
+        pickupRequests.add(3, 1, 2);
+
+        assertArrayEquals(new int[]{3, 40}, pickupRequests.getTimeSlices());
+        assertFalse(pickupRequests.contains(4));
+        assertEquals(0, pickupRequests.size(4));
+        assertEquals(3, pickupRequests.getRequestCount());
+        assertEquals(2, pickupRequests.getMaxSliceSize());
+        assertEquals(40, pickupRequests.getLastTimeSlice());
+    }
+
+    @Test
+    void insertShiftsFollowingRequests() {
+        PickupRequests pickupRequests = new PickupRequests();
+        for (int i = 2; i <= 20; i++) {
+            pickupRequests.add(1, 1, i);
+        }
+        pickupRequests.insert(1, 0, PickupRequests.pack(0, 0));
+        pickupRequests.insert(1, 20, PickupRequests.pack(3, 1));
+
+        assertEquals(21, pickupRequests.size(1));
+        assertEquals(0, pickupRequests.getDestinationFloor(1, 0));
+        assertEquals(2, pickupRequests.getDestinationFloor(1, 1));
+        assertEquals(3, pickupRequests.getCurrentFloor(1, 20));
+    }
+
+    @Test
+    void scatterKeepsEveryRecord() {
+        PickupRequests pickupRequests = new PickupRequests();
+        for (int i = 2; i <= 50; i++) {
+            pickupRequests.add(1, 1, i);
+        }
+        pickupRequests.fill(1, PickupRequests.pack(0, 0), 30);
+        pickupRequests.scatter(1, 49, new SplittableRandom(1));
+
+        int padding = 0;
+        long destinations = 0;
+        for (int i = 0; i < pickupRequests.size(1); i++) {
+            if (pickupRequests.get(1, i) == 0) {
+                padding++;
+            }
+            destinations += pickupRequests.getDestinationFloor(1, i);
+        }
+        assertEquals(79, pickupRequests.size(1));
+        assertEquals(30, padding);
+        assertEquals(49 * 52 / 2, destinations);
+    }
+
+    @Test
+    void convertsMoveRequestViews() {
+        PickupRequests pickupRequests = new PickupRequests();
+        pickupRequests.add(1, 1, 4);
+        pickupRequests.add(2, 4, 1);
+
+        Map<Integer, List<MoveRequest>> moveRequests = pickupRequests.toMoveRequests();
+        assertEquals(new MoveRequest(1, 4), moveRequests.get(1).get(0));
+        assertEquals(new MoveRequest(4, 1), moveRequests.get(2).get(0));
+        assertArrayEquals(pickupRequests.getTimeSlices(), PickupRequests.of(moveRequests).getTimeSlices());
+    }
+}
@@ -0,0 +1,88 @@
+package org.base.scenario.replay;
+
+import org.base.scenario.model.PickupRequests;
+import org.base.scenario.model.Scenario;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ElevatorReplayTest {
+
+    @Test
+    void idleElevatorPicksUpAtItsFloor() {
+        ElevatorReplay replay = new ElevatorReplay(10, 1);
+        replay.accept(1, 1, 5);
+        ReplayReport report = replay.finish();
+        assertEquals(0, report.maxWait());
+        // Picked up on the first tick, then 4 floors up.
+        assertEquals(4, report.maxTrip());
+        assertEquals(5, report.ticks());
+    }
+
+    @Test
+    void busyElevatorOnlyRespondsTwoFloorsAhead() {
+        ElevatorReplay replay = new ElevatorReplay(10, 1);
+        replay.accept(1, 1, 9);
+        // The elevator is on floor 2 and moving up, floor 3 is too close to stop for.
+        replay.accept(1, 3, 6);
+        ReplayReport report = replay.finish();
+        assertEquals(2, report.requests());
+        assertEquals(1, report.maxQueueDepth());
+        // The second request waits until the elevator delivers to floor 9 and comes back down to floor 3.
+        assertEquals(14, report.maxWait());
+    }
+
+    @Test
+    void sameDirectionRequestFarEnoughAheadIsPickedUpOnTheWay() {
+        ElevatorReplay replay = new ElevatorReplay(10, 1);
+        replay.accept(1, 1, 9);
+        replay.accept(1, 4, 6);
+        ReplayReport report = replay.finish();
+        assertEquals(0, report.maxQueueDepth());
+        assertEquals(2, report.maxWait());
+        assertEquals(9, report.ticks());
+    }
+
+    @Test
+    void paddingOnlyAdvancesTime() {
+        ElevatorReplay replay = new ElevatorReplay(10, 2);
+        replay.accept(1, 0, 0);
+        replay.accept(1, 0, 0);
+        ReplayReport report = replay.finish();
+        assertEquals(0, report.requests());
+        assertEquals(2, report.ticks());
+    }
+
+    @Test
+    void moreElevatorsDoNotWaitLonger() {
+        PickupRequests pickupRequests = new PickupRequests();
+        for (int timeSlice = 1; timeSlice <= 20; timeSlice++) {
+            for (int i = 0; i < 20; i++) {
+                int floor = (timeSlice * 7 + i * 3) % 9 + 2;
+                pickupRequests.add(timeSlice, i % 2 == 0 ? 1 : floor, i % 2 == 0 ? floor : 1);
+            }
+        }
+        Scenario scenario = new Scenario(pickupRequests);
+        ReplayReport one = ElevatorReplay.replay(scenario, 10, 1);
+        ReplayReport four = ElevatorReplay.replay(scenario, 10, 4);
+        assertEquals(400, four.requests());
+        assertEquals(true, four.meanWait() <= one.meanWait());
+    }
+
+    @Test
+    void resetStartsOver() {
+        ElevatorReplay replay = new ElevatorReplay(10, 1);
+        replay.accept(1, 1, 5);
+        ReplayReport first = replay.finish();
+        replay.reset();
+        replay.accept(1, 1, 5);
+        assertEquals(first, replay.finish());
+    }
+
+    @Test
+    void rejectsFloorsOutsideTheBuilding() {
+        ElevatorReplay replay = new ElevatorReplay(10, 1);
+        assertThrows(IllegalArgumentException.class, () -> replay.accept(1, 1, 11));
+    }
+}
@@ -0,0 +1,141 @@
+package org.base.scenario.server;
+
+import org.base.scenario.diagnostics.Diagnostics;
+import org.base.scenario.diagnostics.DiagnosticsMode;
+import org.base.scenario.io.ScenarioFormat;
+import org.base.scenario.io.ScenarioWriter;
+import org.base.scenario.model.Constraints;
+import org.base.scenario.model.FloorDistribution;
+import org.base.scenario.service.ScenarioService;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.channels.Channels;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ScenarioServerTest {
+
+    @Test
+    void streamsScenarioAndServesRepeatsFromCache() throws Exception {
+        Constraints constraints = constraints();
+        constraints.setServerPort(0);
+        constraints.setDiagnostics(DiagnosticsMode.OFF);
+        try (ScenarioServer server = new ScenarioServer(constraints, new Diagnostics(constraints))) {
+            server.start();
+            HttpClient client = HttpClient.newHttpClient();
+            URI uri = URI.create("http://localhost:" + server.getPort() + "/scenario?seed=7&format=binary&number-of-floors=12");
+
+            HttpResponse<byte[]> first = client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(200, first.statusCode());
+            assertEquals("MISS", first.headers().firstValue("X-Cache").orElseThrow());
+
+            HttpResponse<byte[]> second = client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals("HIT", second.headers().firstValue("X-Cache").orElseThrow());
+            assertArrayEquals(first.body(), second.body());
+
+            Constraints expected = constraints();
+            expected.setNumberOfFloors(12);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ScenarioWriter writer = ScenarioWriter.create(Channels.newChannel(bytes), ScenarioFormat.BINARY)) {
+                new ScenarioService(expected).writeScenario(writer, 7L);
+            }
+            assertArrayEquals(bytes.toByteArray(), first.body());
+        }
+    }
+
+    @Test
+    void rejectsUnknownParameters() throws Exception {
+        Constraints constraints = constraints();
+        constraints.setServerPort(0);
+        try (ScenarioServer server = new ScenarioServer(constraints, new Diagnostics(constraints))) {
+            server.start();
+            URI uri = URI.create("http://localhost:" + server.getPort() + "/scenario?seed=7&streaming=true");
+            HttpResponse<String> response = HttpClient.newHttpClient().send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(400, response.statusCode());
+        }
+    }
+
+    @Test
+    void rejectsWindowsTheGeneratorCannotScheduleBeforeResponding() throws Exception {
+        Constraints constraints = constraints();
+        constraints.setServerPort(0);
+        try (ScenarioServer server = new ScenarioServer(constraints, new Diagnostics(constraints))) {
+            server.start();
+            HttpClient client = HttpClient.newHttpClient();
+            for (String overrides : List.of("checkin-start-time=1&checkin-end-time=5", "checkin-start-time=11&checkin-end-time=14",
+                    "checkout-start-time=5&checkout-end-time=7", "checkout-start-time=8&checkout-end-time=6",
+                    "checkin-start-time=3&checkin-end-time=8&checkout-start-time=5&checkout-end-time=10")) {
+                URI uri = URI.create("http://localhost:" + server.getPort() + "/scenario?seed=7&" + overrides);
+                HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+                assertEquals(400, response.statusCode(), overrides);
+            }
+
+            URI uri = URI.create("http://localhost:" + server.getPort() + "/scenario?seed=7&checkin-start-time=11&checkin-end-time=15&checkout-start-time=5&checkout-end-time=8");
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            assertFalse(response.body().isEmpty());
+        }
+    }
+
+    @Test
+    void floorDistributionsAreOverridesWithTheirOwnCacheEntries() throws Exception {
+        Constraints constraints = constraints();
+        constraints.setServerPort(0);
+        try (ScenarioServer server = new ScenarioServer(constraints, new Diagnostics(constraints))) {
+            server.start();
+            HttpClient client = HttpClient.newHttpClient();
+            String base = "http://localhost:" + server.getPort() + "/scenario?seed=7";
+            HttpResponse<String> occupancy = client.send(HttpRequest.newBuilder(URI.create(base)).build(), HttpResponse.BodyHandlers.ofString());
+            URI uri = URI.create(base + "&checkin-destinations=uniform&leave-destinations=uniform");
+            HttpResponse<String> uniform = client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, uniform.statusCode());
+            assertEquals("MISS", uniform.headers().firstValue("X-Cache").orElseThrow());
+            assertFalse(occupancy.body().equals(uniform.body()));
+        }
+
+        Constraints uniform = constraints();
+        uniform.setCheckinDestinations(FloorDistribution.UNIFORM);
+        assertFalse(ScenarioKey.of(constraints(), 1L, ScenarioFormat.TEXT).equals(ScenarioKey.of(uniform, 1L, ScenarioFormat.TEXT)));
+    }
+
+    @Test
+    void cacheEvictsLeastRecentlyUsedScenarios() {
+        ScenarioCache cache = new ScenarioCache(10);
+        ScenarioKey first = ScenarioKey.of(constraints(), 1L, ScenarioFormat.TEXT);
+        ScenarioKey second = ScenarioKey.of(constraints(), 2L, ScenarioFormat.TEXT);
+        ScenarioKey third = ScenarioKey.of(constraints(), 3L, ScenarioFormat.TEXT);
+        cache.put(first, new byte[4]);
+        cache.put(second, new byte[4]);
+        assertNotNull(cache.get(first));
+        cache.put(third, new byte[4]);
+        assertNull(cache.get(second));
+        assertNotNull(cache.get(first));
+        assertEquals(8, cache.getBytes());
+
+        cache.put(ScenarioKey.of(constraints(), 4L, ScenarioFormat.TEXT), new byte[11]);
+        assertEquals(2, cache.size());
+    }
+
+    private static Constraints constraints() {
+        Constraints constraints = new Constraints();
+        constraints.setNumberOfFloors(10);
+        constraints.setNumberOfRoomsPerFloor(20);
+        constraints.setMaxOccupantsPerRoom(4);
+        constraints.setCheckinStartTime(11);
+        constraints.setCheckinEndTime(24);
+        constraints.setCheckoutStartTime(5);
+        constraints.setCheckoutEndTime(10);
+        return constraints;
+    }
+}
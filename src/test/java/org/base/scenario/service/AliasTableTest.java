@@ -0,0 +1,56 @@
+package org.base.scenario.service;
+
+import org.base.scenario.model.FloorDistribution;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AliasTableTest {
+
+    @Test
+    void drawsInProportionToWeights() {
+        double[] weights = {0, 5, 1, 0, 3, 1};
+        AliasTable table = new AliasTable(weights);
+        SplittableRandom rand = new SplittableRandom(3);
+        int draws = 1_000_000;
+        int[] counts = new int[weights.length];
+        for (int i = 0; i < draws; i++) {
+            counts[table.next(rand)]++;
+        }
+        for (int index = 0; index < weights.length; index++) {
+            assertEquals(weights[index] / 10, (double) counts[index] / draws, .005);
+        }
+    }
+
+    @Test
+    void neverDrawsZeroWeights() {
+        AliasTable table = new AliasTable(FloorDistribution.OCCUPANCY.weights(5, new long[]{0, 0, 0, 7, 0, 0}));
+        SplittableRandom rand = new SplittableRandom(3);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(3, table.next(rand));
+        }
+    }
+
+    @Test
+    void rejectsTablesWithoutWeight() {
+        assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[3]));
+        assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[]{1, -1}));
+    }
+
+    @Test
+    void distributionsWeighEveryFloor() {
+        for (FloorDistribution distribution : FloorDistribution.values()) {
+            for (int floors = 2; floors <= 5; floors++) {
+                double[] weights = distribution.weights(floors, new long[]{0, 0, 1, 1, 1, 1});
+                assertEquals(floors + 1, weights.length);
+                assertEquals(0.0, weights[0]);
+            }
+        }
+        double[] lobbyHeavy = FloorDistribution.LOBBY_HEAVY.weights(4, new long[0]);
+        assertEquals(.7, lobbyHeavy[1], 1e-9);
+        assertEquals(.1, lobbyHeavy[4], 1e-9);
+    }
+}
@@ -0,0 +1,36 @@
+package org.base.scenario.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CheckinDestinationsTest {
+
+    @Test
+    void fillsEveryFloorUpToItsCapacity() {
+        CheckinDestinations destinations = new CheckinDestinations(new double[]{0, 0, 10, 1, 1}, new long[]{0, 0, 3, 5, 5});
+        SplittableRandom rand = new SplittableRandom(5);
+        long[] counts = new long[5];
+        for (int i = 0; i < 13; i++) {
+            counts[destinations.next(rand)]++;
+        }
+        assertArrayEquals(new long[]{0, 0, 3, 5, 5}, counts);
+        assertEquals(0, destinations.getRemaining(2));
+        assertThrows(IllegalStateException.class, () -> destinations.next(rand));
+    }
+
+    @Test
+    void fallsBackToFloorsWithRoomWhenTheWeightedOnesAreFull() {
+        CheckinDestinations destinations = new CheckinDestinations(new double[]{0, 0, 1, 0}, new long[]{0, 0, 2, 2});
+        SplittableRandom rand = new SplittableRandom(5);
+        long[] counts = new long[4];
+        for (int i = 0; i < 4; i++) {
+            counts[destinations.next(rand)]++;
+        }
+        assertArrayEquals(new long[]{0, 0, 2, 2}, counts);
+    }
+}
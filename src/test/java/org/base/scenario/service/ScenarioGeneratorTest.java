@@ -0,0 +1,64 @@
+package org.base.scenario.service;
+
+import org.base.scenario.model.Constraints;
+import org.base.scenario.model.TimeSliceRequests;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScenarioGeneratorTest {
+
+    @Test
+    void sameSeedProducesSameRequests() {
+        assertEquals(generate(42L, 0), generate(42L, 0));
+    }
+
+    @Test
+    void padsEveryTimeSliceToSliceSize() {
+        List<String> unpadded = generate(7L, 0);
+        int sliceSize = 0;
+        for (ScenarioGenerator generator = new ScenarioGenerator(constraints(), 7L, 0); generator.hasNext(); ) {
+            sliceSize = Math.max(sliceSize, generator.next().size());
+        }
+
+        int timeSlices = 0;
+        long requests = 0;
+        for (ScenarioGenerator generator = new ScenarioGenerator(constraints(), 7L, sliceSize); generator.hasNext(); ) {
+            TimeSliceRequests slice = generator.next();
+            assertEquals(sliceSize, slice.size());
+            for (int i = 0; i < slice.size(); i++) {
+                if (slice.getCurrentFloor(i) != 0) {
+                    requests++;
+                }
+            }
+            timeSlices++;
+        }
+        assertTrue(timeSlices > 0);
+        assertEquals(unpadded.size(), requests);
+    }
+
+    private static List<String> generate(long seed, int sliceSize) {
+        List<String> lines = new ArrayList<>();
+        for (ScenarioGenerator generator = new ScenarioGenerator(constraints(), seed, sliceSize); generator.hasNext(); ) {
+            generator.next().forEach((timeSlice, currentFloor, destinationFloor) ->
+                    lines.add(timeSlice + ", " + currentFloor + ", " + destinationFloor));
+        }
+        return lines;
+    }
+
+    static Constraints constraints() {
+        Constraints constraints = new Constraints();
+        constraints.setNumberOfFloors(10);
+        constraints.setNumberOfRoomsPerFloor(20);
+        constraints.setMaxOccupantsPerRoom(4);
+        constraints.setCheckinStartTime(11);
+        constraints.setCheckinEndTime(24);
+        constraints.setCheckoutStartTime(5);
+        constraints.setCheckoutEndTime(10);
+        return constraints;
+    }
+}
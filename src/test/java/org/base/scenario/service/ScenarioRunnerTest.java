@@ -0,0 +1,59 @@
+package org.base.scenario.service;
+
+import org.base.scenario.diagnostics.Diagnostics;
+import org.base.scenario.diagnostics.DiagnosticsMode;
+import org.base.scenario.io.ScenarioFormat;
+import org.base.scenario.model.Constraints;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.base.scenario.service.ScenarioGeneratorTest.constraints;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class ScenarioRunnerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void scenarioSeedsDependOnlyOnMasterSeed() {
+        long[] seeds = ScenarioRunner.scenarioSeeds(3L, 8);
+        assertEquals(Arrays.toString(seeds), Arrays.toString(ScenarioRunner.scenarioSeeds(3L, 8)));
+        assertEquals(8, Arrays.stream(seeds).distinct().count());
+        assertFalse(Arrays.equals(seeds, ScenarioRunner.scenarioSeeds(4L, 8)));
+    }
+
+    @Test
+    void sameMasterSeedWritesIdenticalBatches() throws Exception {
+        for (ScenarioFormat format : ScenarioFormat.values()) {
+            Path first = run(dir.resolve(format + "-first"), format);
+            Path second = run(dir.resolve(format + "-second"), format);
+            for (int i = 1; i <= 4; i++) {
+                String file = "scenario-" + i + format.getExtension();
+                assertArrayEquals(Files.readAllBytes(first.resolve(file)), Files.readAllBytes(second.resolve(file)), format + " " + file);
+            }
+            assertFalse(Arrays.equals(Files.readAllBytes(first.resolve("scenario-1" + format.getExtension())),
+                    Files.readAllBytes(first.resolve("scenario-2" + format.getExtension()))));
+        }
+    }
+
+    private static Path run(Path directory, ScenarioFormat format) throws Exception {
+        Files.createDirectories(directory);
+        Constraints constraints = constraints();
+        constraints.setSeed(3L);
+        constraints.setScenarioCount(4);
+        constraints.setOutputFormat(format);
+        constraints.setOutputName(directory.resolve("scenario").toString());
+        constraints.setDiagnostics(DiagnosticsMode.OFF);
+        constraints.setMetrics(false);
+        Diagnostics diagnostics = new Diagnostics(constraints);
+        new ScenarioRunner(constraints, new ScenarioService(constraints, diagnostics), diagnostics).run();
+        return directory;
+    }
+}
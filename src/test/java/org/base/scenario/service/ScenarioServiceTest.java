@@ -0,0 +1,211 @@
+package org.base.scenario.service;
+
+import org.base.scenario.metrics.GenerationMetrics;
+import org.base.scenario.metrics.StageMetrics;
+import org.base.scenario.model.Constraints;
+import org.base.scenario.model.FloorDistribution;
+import org.base.scenario.model.PickupRequests;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.base.scenario.service.ScenarioGeneratorTest.constraints;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScenarioServiceTest {
+
+    @Test
+    void sameSeedCreatesSameScenario() {
+        ScenarioService scenarioService = new ScenarioService(constraints());
+        PickupRequests first = scenarioService.createScenario(11L).getPickupRequests();
+        PickupRequests second = scenarioService.createScenario(11L).getPickupRequests();
+        assertEquals(first.toMoveRequests(), second.toMoveRequests());
+    }
+
+    @Test
+    void parallelStagesCreateSameScenario() {
+        Constraints constraints = constraints();
+        ScenarioService scenarioService = new ScenarioService(constraints);
+        PickupRequests parallel = scenarioService.createScenario(11L).getPickupRequests();
+        constraints.setParallelStages(false);
+        PickupRequests sequential = scenarioService.createScenario(11L).getPickupRequests();
+        assertEquals(sequential.toMoveRequests(), parallel.toMoveRequests());
+    }
+
+    @Test
+    void reusedBuildingsCreateSameScenario() {
+        Constraints constraints = constraints();
+        PickupRequests fresh = new ScenarioService(constraints).createScenario(11L).getPickupRequests();
+        ScenarioService scenarioService = new ScenarioService(constraints);
+        scenarioService.createScenario(12L);
+        PickupRequests reused = scenarioService.createScenario(11L).getPickupRequests();
+        assertEquals(fresh.toMoveRequests(), reused.toMoveRequests());
+    }
+
+    @Test
+    void shardedCheckinsMatchWholeBuilding() {
+        Constraints constraints = constraints();
+        constraints.setStages(List.of("checkin"));
+        PickupRequests whole = new ScenarioService(constraints).createScenario(11L).getPickupRequests();
+        constraints.setBuildingShards(3);
+        PickupRequests sharded = new ScenarioService(constraints).createScenario(11L).getPickupRequests();
+        assertEquals(whole.toMoveRequests(), sharded.toMoveRequests());
+    }
+
+    @Test
+    void shardedCheckoutsFollowWholeBuilding() {
+        Constraints constraints = constraints();
+        constraints.setStages(List.of("checkin", "checkout"));
+        PickupRequests whole = new ScenarioService(constraints).createScenario(11L).getPickupRequests();
+        constraints.setBuildingShards(4);
+        ScenarioService scenarioService = new ScenarioService(constraints);
+        PickupRequests sharded = scenarioService.createScenario(11L).getPickupRequests();
+        assertEquals(sharded.toMoveRequests(), scenarioService.createScenario(11L).getPickupRequests().toMoveRequests());
+
+        // Checkouts per hour are the same, only the rooms that check out differ.
+        for (int timeSlice : whole.getTimeSlices()) {
+            assertEquals(whole.size(timeSlice), sharded.size(timeSlice));
+        }
+        // No floor checks out more rooms than checked in.
+        int[] occupiedRooms = new int[constraints.getNumberOfFloors() + 1];
+        sharded.forEach((timeSlice, currentFloor, destinationFloor) -> {
+            if (currentFloor == 1) {
+                occupiedRooms[destinationFloor]++;
+            } else {
+                occupiedRooms[currentFloor]--;
+            }
+        });
+        assertTrue(Arrays.stream(occupiedRooms).allMatch(rooms -> rooms >= 0));
+    }
+
+    @Test
+    void apportionsCheckoutsByOccupiedRooms() {
+        int[] occupied = {10, 0, 5, 5};
+        assertEquals(List.of(5, 0, 2, 3), Arrays.stream(ShardedStages.apportion(10, occupied, 20)).boxed().toList());
+        assertEquals(List.of(5, 0, 3, 2), Arrays.stream(occupied).boxed().toList());
+    }
+
+    @Test
+    void stagesWaitOnlyForConflictingStages() {
+        StagePipeline pipeline = new ScenarioService(constraints()).getPipeline();
+        List<String> names = pipeline.getStages().stream().map(ScenarioStage::getName).toList();
+        assertEquals(List.of("checkin"), dependencies(pipeline, names.indexOf("destinations")));
+        assertEquals(List.of("checkin", "destinations"), dependencies(pipeline, names.indexOf("leave")));
+        // Leave and checkout read the bookings without changing them, so they run concurrently.
+        assertEquals(List.of("checkin", "destinations"), dependencies(pipeline, names.indexOf("checkout")));
+        assertEquals(List.of("checkin", "destinations", "leave", "checkout"), dependencies(pipeline, names.indexOf("return")));
+    }
+
+    @Test
+    void occupantsLeaveAndCheckOutFromTheFloorsTheyCheckedInto() {
+        for (int shards : new int[]{1, 3}) {
+            Constraints constraints = constraints();
+            constraints.setBuildingShards(shards);
+            constraints.setStages(List.of("checkin", "destinations", "leave", "checkout"));
+            PickupRequests pickupRequests = new ScenarioService(constraints).createScenario(11L).getPickupRequests();
+
+            int[] checkins = new int[constraints.getNumberOfFloors() + 1];
+            int[] checkouts = new int[constraints.getNumberOfFloors() + 1];
+            long[] leaves = new long[constraints.getNumberOfFloors() + 1];
+            pickupRequests.forEach((timeSlice, currentFloor, destinationFloor) -> {
+                if (currentFloor == 1) {
+                    checkins[destinationFloor]++;
+                } else if (destinationFloor == 1 && timeSlice > constraints.getCheckinEndTime() - constraints.getCheckinStartTime() + 1) {
+                    checkouts[currentFloor]++;
+                } else {
+                    leaves[currentFloor]++;
+                }
+            });
+            for (int floor = 2; floor <= constraints.getNumberOfFloors(); floor++) {
+                assertTrue(checkouts[floor] <= checkins[floor], shards + " shards, floor " + floor);
+                assertTrue(leaves[floor] == 0 || checkins[floor] > 0, shards + " shards, floor " + floor);
+            }
+            assertTrue(Arrays.stream(checkouts).sum() > 0);
+        }
+    }
+
+    @Test
+    void skipsStagesThatAreLeftOut() {
+        Constraints constraints = constraints();
+        constraints.setStages(List.of("checkin", "checkout"));
+        PickupRequests pickupRequests = new ScenarioService(constraints).createScenario(11L).getPickupRequests();
+        pickupRequests.forEach((timeSlice, currentFloor, destinationFloor) ->
+                assertTrue(currentFloor == 1 ^ destinationFloor == 1));
+    }
+
+    @Test
+    void rejectsUnknownStages() {
+        Constraints constraints = constraints();
+        constraints.setStages(List.of("checkin", "lunch"));
+        assertThrows(IllegalArgumentException.class, () -> new ScenarioService(constraints).createScenario(11L));
+    }
+
+    @Test
+    void rejectsDestinationsAfterStagesThatNeedThem() {
+        for (List<String> stages : List.of(List.of("checkin", "leave", "return", "destinations"),
+                List.of("checkin", "checkout", "destinations"), List.of("checkin", "normalize", "destinations"))) {
+            Constraints constraints = constraints();
+            constraints.setStages(stages);
+            assertThrows(IllegalArgumentException.class, () -> new ScenarioService(constraints).createScenario(11L), stages.toString());
+        }
+    }
+
+    @Test
+    void recordsEveryStageInOrder() {
+        Constraints constraints = constraints();
+        constraints.setParallelStages(false);
+        ScenarioService scenarioService = new ScenarioService(constraints);
+        GenerationMetrics metrics = new GenerationMetrics("test", 11L);
+        PickupRequests pickupRequests = scenarioService.createScenario(11L, metrics).getPickupRequests();
+
+        List<StageMetrics> stages = metrics.getStages();
+        assertEquals(constraints.getStages(),
+                stages.stream().map(StageMetrics::name).toList());
+        for (int i = 1; i < stages.size(); i++) {
+            assertEquals(stages.get(i - 1).requestsOut(), stages.get(i).requestsIn());
+        }
+        assertEquals(pickupRequests.getRequestCount(), stages.get(stages.size() - 1).requestsOut());
+    }
+
+    @Test
+    void totalIsEndToEndTimeOfConcurrentStages() {
+        Constraints constraints = constraints();
+        constraints.setBuildingShards(2);
+        GenerationMetrics metrics = new GenerationMetrics("test", 11L);
+        long start = System.nanoTime();
+        new ScenarioService(constraints).createScenario(11L, metrics);
+        long elapsed = System.nanoTime() - start;
+
+        long longestStage = metrics.getStages().stream().mapToLong(StageMetrics::wallNanos).max().orElseThrow();
+        assertTrue(metrics.getWallNanos() >= longestStage);
+        assertTrue(metrics.getWallNanos() <= elapsed);
+        assertTrue(metrics.toJson().contains("\"wallNanos\": " + metrics.getWallNanos() + ","));
+    }
+
+    @Test
+    void noFloorGetsMoreCheckinsThanItHasRooms() {
+        for (FloorDistribution distribution : FloorDistribution.values()) {
+            Constraints constraints = constraints();
+            constraints.setCheckinDestinations(distribution);
+            constraints.setStages(List.of("checkin", "destinations"));
+            PickupRequests pickupRequests = new ScenarioService(constraints).createScenario(11L).getPickupRequests();
+
+            long[] checkins = new long[constraints.getNumberOfFloors() + 1];
+            pickupRequests.forEach((timeSlice, currentFloor, destinationFloor) -> checkins[destinationFloor]++);
+            for (int floor = 1; floor <= constraints.getNumberOfFloors(); floor++) {
+                assertTrue(checkins[floor] <= (floor == 1 ? 0 : constraints.getNumberOfRoomsPerFloor()), distribution + " floor " + floor);
+            }
+            if (distribution == FloorDistribution.OCCUPANCY) {
+                assertArrayEquals(new TrafficPlan(constraints).checkinFloorCounts(), checkins);
+            }
+        }
+    }
+
+    private static List<String> dependencies(StagePipeline pipeline, int index) {
+        return pipeline.getDependencies(index).stream().map(ScenarioStage::getName).toList();
+    }
+}
@@ -0,0 +1,86 @@
+package org.base.scenario.service;
+
+import org.base.scenario.diagnostics.Diagnostics;
+import org.base.scenario.model.Constraints;
+import org.base.scenario.model.PickupRequests;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.base.scenario.service.ScenarioGeneratorTest.constraints;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ScenarioSweepTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reusedStagesCreateSameScenarios() {
+        Constraints constraints = constraints();
+        constraints.getSweep().put("number-of-floors", "5,10");
+        constraints.getSweep().put("checkout-start-time", "3..5");
+        constraints.getSweep().put("checkout-end-time", "8,10");
+        Map<Map<String, String>, PickupRequests> swept = new ConcurrentHashMap<>();
+        List<ScenarioSweep.SweepResult> results = new ScenarioSweep(constraints, new Diagnostics(constraints))
+                .sweep(11L, swept::put);
+
+        assertEquals(12, results.size());
+        for (ScenarioSweep.SweepResult result : results) {
+            Constraints configuration = constraints();
+            configuration.setNumberOfFloors(Integer.parseInt(result.values().get("number-of-floors")));
+            configuration.setCheckoutStartTime(Integer.parseInt(result.values().get("checkout-start-time")));
+            configuration.setCheckoutEndTime(Integer.parseInt(result.values().get("checkout-end-time")));
+            PickupRequests expected = new ScenarioService(configuration).createScenario(11L).getPickupRequests();
+            assertEquals(expected.toMoveRequests(), swept.get(result.values()).toMoveRequests());
+            assertEquals(expected.getRequestCount(), result.records());
+        }
+        // Each number of floors generates its check-in period once.
+        assertEquals(0, results.get(0).reusedStages());
+        assertEquals(0, results.get(6).reusedStages());
+        assertEquals(results.get(1).reusedStages(), results.get(11).reusedStages());
+    }
+
+    @Test
+    void parsesListsAndRanges() {
+        assertArrayEquals(new int[]{10, 20, 40}, ScenarioSweep.values("10, 20,40"));
+        assertArrayEquals(new int[]{3, 4, 5}, ScenarioSweep.values("3..5"));
+        assertArrayEquals(new int[]{10, 20, 30}, ScenarioSweep.values("10..35:10"));
+        assertThrows(IllegalArgumentException.class, () -> ScenarioSweep.values("5..3"));
+        assertThrows(IllegalArgumentException.class, () -> ScenarioSweep.values("3..5:0"));
+    }
+
+    @Test
+    void rejectsUnknownAndInvalidConfigurations() {
+        Constraints constraints = constraints();
+        constraints.getSweep().put("seed", "1,2");
+        assertThrows(IllegalArgumentException.class, () -> new ScenarioSweep(constraints, new Diagnostics(constraints)).grid());
+
+        constraints.getSweep().clear();
+        constraints.getSweep().put("checkout-end-time", "4,8");
+        assertThrows(IllegalArgumentException.class, () -> new ScenarioSweep(constraints, new Diagnostics(constraints)).grid());
+    }
+
+    @Test
+    void writesOneRowPerConfiguration() throws Exception {
+        Constraints constraints = constraints();
+        constraints.setOutputName(dir.resolve("scenario").toString());
+        constraints.getSweep().put("number-of-rooms-per-floor", "5,10");
+        constraints.getSweep().put("checkout-end-time", "8,10");
+        new ScenarioSweep(constraints, new Diagnostics(constraints)).run(11L);
+
+        List<String> lines = Files.readAllLines(dir.resolve("scenario.sweep.csv"));
+        assertEquals(5, lines.size());
+        assertEquals("number-of-rooms-per-floor,checkout-end-time,time_slices,requests,max_requests_per_time_slice,records,reused_stages",
+                lines.get(0));
+        assertEquals("5,8,", lines.get(1).substring(0, 4));
+        assertEquals("10,10,", lines.get(4).substring(0, 6));
+    }
+}
@@ -0,0 +1,71 @@
+package org.base.scenario.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    @Test
+    void drainsRecordsInScheduleOrder() {
+        TimingWheel wheel = new TimingWheel(4);
+        wheel.schedule(2, 20L);
+        wheel.schedule(1, 10L);
+        wheel.schedule(2, 21L);
+        assertEquals(3, wheel.size());
+        assertEquals(List.of(), drain(wheel, 0));
+        assertEquals(List.of(10L), drain(wheel, 1));
+        assertEquals(List.of(20L, 21L), drain(wheel, 2));
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    void growsWhenScheduledBeyondItsSpan() {
+        TimingWheel wheel = new TimingWheel(2);
+        for (int timeSlice = 0; timeSlice < 100; timeSlice++) {
+            wheel.schedule(timeSlice, timeSlice);
+            wheel.schedule(timeSlice * 2, -timeSlice);
+        }
+        for (int timeSlice = 0; timeSlice < 200; timeSlice++) {
+            List<Long> records = drain(wheel, timeSlice);
+            assertEquals(wheel.getCurrentTimeSlice(), timeSlice + 1);
+            assertEquals((timeSlice < 100 ? 1 : 0) + (timeSlice % 2 == 0 ? 1 : 0), records.size());
+        }
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    void reusesBucketsOfDrainedTimeSlices() {
+        TimingWheel wheel = new TimingWheel(4);
+        for (int timeSlice = 0; timeSlice < 1000; timeSlice++) {
+            wheel.schedule(timeSlice + 3, timeSlice);
+            assertEquals(timeSlice < 3 ? List.of() : List.of((long) timeSlice - 3), drain(wheel, timeSlice));
+        }
+        assertEquals(3, wheel.size());
+    }
+
+    @Test
+    void rejectsSchedulingInDrainedTimeSlices() {
+        TimingWheel wheel = new TimingWheel();
+        drain(wheel, 5);
+        assertThrows(IllegalArgumentException.class, () -> wheel.schedule(5, 1L));
+    }
+
+    @Test
+    void rejectsSkippingPendingTimeSlices() {
+        TimingWheel wheel = new TimingWheel();
+        wheel.schedule(3, 1L);
+        assertThrows(IllegalStateException.class, () -> drain(wheel, 4));
+    }
+
+    private static List<Long> drain(TimingWheel wheel, int timeSlice) {
+        List<Long> records = new ArrayList<>();
+        wheel.drain(timeSlice, records::add);
+        return records;
+    }
+}